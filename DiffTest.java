@@ -0,0 +1,224 @@
+package gitlet;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Diff, checking the edit scripts it finds against a
+ * longest common subsequence computed by dynamic programming.
+ * @author Ryan Van de Water
+ */
+public class DiffTest {
+
+    /** Puts the diff algorithm back to the configured one. */
+    @After
+    public void restoreAlgorithm() {
+        System.clearProperty(ALGORITHM);
+    }
+
+    /** Two empty sequences have no differences. */
+    @Test
+    public void emptyInputs() {
+        for (String algorithm : ALGORITHMS) {
+            System.setProperty(ALGORITHM, algorithm);
+            assertTrue(Diff.compute(new int[0], new int[0]).isEmpty());
+        }
+    }
+
+    /** Identical sequences have no differences. */
+    @Test
+    public void identicalInputs() {
+        int[] a = {1, 2, 3, 1, 2, 3};
+        for (String algorithm : ALGORITHMS) {
+            System.setProperty(ALGORITHM, algorithm);
+            assertTrue(Diff.compute(a, a.clone()).isEmpty());
+        }
+    }
+
+    /** Against an empty sequence, everything is one insertion or one
+     * deletion. */
+    @Test
+    public void oneSideEmpty() {
+        int[] a = {1, 2, 3};
+        for (String algorithm : ALGORITHMS) {
+            System.setProperty(ALGORITHM, algorithm);
+            assertHunks(Diff.compute(new int[0], a), 0, 0, 0, 3);
+            assertHunks(Diff.compute(a, new int[0]), 0, 3, 0, 0);
+        }
+    }
+
+    /** Sequences with no line in common differ in one hunk. */
+    @Test
+    public void allLinesChanged() {
+        int[] a = {1, 2, 3};
+        int[] b = {4, 5};
+        for (String algorithm : ALGORITHMS) {
+            System.setProperty(ALGORITHM, algorithm);
+            assertHunks(Diff.compute(a, b), 0, 3, 0, 2);
+        }
+    }
+
+    /** A change in the middle leaves the common prefix and suffix out
+     * of the hunk. */
+    @Test
+    public void changeInMiddle() {
+        int[] a = {1, 2, 3, 4, 5};
+        int[] b = {1, 2, 9, 4, 5};
+        for (String algorithm : ALGORITHMS) {
+            System.setProperty(ALGORITHM, algorithm);
+            assertHunks(Diff.compute(a, b), 2, 3, 2, 3);
+        }
+    }
+
+    /** On random sequences over a small alphabet, which have many
+     * repeated lines, every script turns A into B, and the Myers
+     * script is as short as the longest common subsequence allows. */
+    @Test
+    public void fuzzAgainstLcs() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < ROUNDS; round += 1) {
+            int[] a = randomLines(random);
+            int[] b = random.nextBoolean() ? randomLines(random)
+                : mutate(random, a);
+            int shortest = a.length + b.length - 2 * lcs(a, b);
+            System.setProperty(ALGORITHM, "myers");
+            List<Diff.Hunk> myers = Diff.compute(a, b);
+            assertTransforms(a, b, myers);
+            assertEquals(shortest, length(myers));
+            System.setProperty(ALGORITHM, "patience");
+            List<Diff.Hunk> patience = Diff.compute(a, b);
+            assertTransforms(a, b, patience);
+            assertTrue(length(patience) >= shortest);
+        }
+    }
+
+    /** Lines split and join back into the same bytes, with or without a
+     * final newline. */
+    @Test
+    public void linesRoundTrip() {
+        for (String text : new String[] {"", "a\n", "a\nb", "a\n\nb\n"}) {
+            byte[] raw = text.getBytes();
+            assertArrayEquals(raw, Diff.join(Diff.lines(raw)));
+        }
+        assertEquals(List.of("a\n", "b"), Diff.lines("a\nb".getBytes()));
+    }
+
+    /** Checks that a diff is exactly one hunk.
+     * @param hunks - the diff
+     * @param as - the expected first line of A replaced
+     * @param ae - just past the expected last line of A replaced
+     * @param bs - the expected first line of B replacing it
+     * @param be - just past the expected last line of B replacing it
+     */
+    private static void assertHunks(List<Diff.Hunk> hunks, int as, int ae,
+                                    int bs, int be) {
+        assertEquals(1, hunks.size());
+        Diff.Hunk h = hunks.get(0);
+        assertArrayEquals(new int[] {as, ae, bs, be},
+                new int[] {h.aStart, h.aEnd, h.bStart, h.bEnd});
+    }
+
+    /** Checks that applying hunks to one sequence gives another, and
+     * that the lines between hunks are equal.
+     * @param a - the old sequence
+     * @param b - the new sequence
+     * @param hunks - the diff of A and B
+     */
+    private static void assertTransforms(int[] a, int[] b,
+                                         List<Diff.Hunk> hunks) {
+        int i = 0;
+        int j = 0;
+        for (Diff.Hunk h : hunks) {
+            assertEquals(h.aStart - i, h.bStart - j);
+            while (i < h.aStart) {
+                assertEquals(a[i++], b[j++]);
+            }
+            assertTrue(h.aEnd > h.aStart || h.bEnd > h.bStart);
+            i = h.aEnd;
+            j = h.bEnd;
+        }
+        assertEquals(a.length - i, b.length - j);
+        while (i < a.length) {
+            assertEquals(a[i++], b[j++]);
+        }
+    }
+
+    /** Counts the lines a diff deletes and inserts.
+     * @param hunks - the diff
+     * @return the length of its edit script
+     */
+    private static int length(List<Diff.Hunk> hunks) {
+        int result = 0;
+        for (Diff.Hunk h : hunks) {
+            result += h.aEnd - h.aStart + h.bEnd - h.bStart;
+        }
+        return result;
+    }
+
+    /** Computes the length of the longest common subsequence by
+     * dynamic programming.
+     * @param a - one sequence
+     * @param b - another sequence
+     * @return the length of their longest common subsequence
+     */
+    private static int lcs(int[] a, int[] b) {
+        int[][] best = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i -= 1) {
+            for (int j = b.length - 1; j >= 0; j -= 1) {
+                best[i][j] = a[i] == b[j] ? best[i + 1][j + 1] + 1
+                    : Math.max(best[i + 1][j], best[i][j + 1]);
+            }
+        }
+        return best[0][0];
+    }
+
+    /** Makes a random sequence of lines.
+     * @param random - the random generator
+     * @return up to MAX_LINES lines from an alphabet of ALPHABET
+     */
+    private static int[] randomLines(Random random) {
+        int[] result = new int[random.nextInt(MAX_LINES + 1)];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = random.nextInt(ALPHABET);
+        }
+        return result;
+    }
+
+    /** Makes a sequence by randomly changing a few lines of another.
+     * @param random - the random generator
+     * @param a - the sequence to change
+     * @return the changed sequence
+     */
+    private static int[] mutate(Random random, int[] a) {
+        int[] result = new int[a.length];
+        for (int i = 0; i < a.length; i += 1) {
+            result[i] = random.nextInt(MUTATION) == 0
+                ? random.nextInt(2 * ALPHABET) : a[i];
+        }
+        return result;
+    }
+
+    /** The system property choosing the diff algorithm. */
+    private static final String ALGORITHM = "gitlet.diff.algorithm";
+
+    /** Every diff algorithm. */
+    private static final String[] ALGORITHMS = {"myers", "patience"};
+
+    /** The seed of the random generator. */
+    private static final long SEED = 61;
+
+    /** The number of random pairs of sequences compared. */
+    private static final int ROUNDS = 2000;
+
+    /** The most lines in a random sequence. */
+    private static final int MAX_LINES = 60;
+
+    /** The number of distinct lines in random sequences. */
+    private static final int ALPHABET = 5;
+
+    /** One line in this many is changed by mutate. */
+    private static final int MUTATION = 6;
+}
@@ -0,0 +1,121 @@
+package gitlet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Merge3, the line by line merge of three versions.
+ * @author Ryan Van de Water
+ */
+public class Merge3Test {
+
+    /** Changes to different regions are both taken. */
+    @Test
+    public void nonOverlappingEdits() {
+        Merge3 m = Merge3.merge(text(BASE),
+                text("1", "two", "3", "4", "5", "6", "7", "8", "9"),
+                text("1", "2", "3", "4", "5", "6", "7", "eight", "9"));
+        assertEquals(0, m.getConflicts());
+        assertEquals(joined("1", "two", "3", "4", "5", "6", "7", "eight",
+                "9"), new String(m.getContents()));
+    }
+
+    /** An insertion on one side and a deletion on the other merge. */
+    @Test
+    public void insertionAndDeletion() {
+        Merge3 m = Merge3.merge(text(BASE),
+                text("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"),
+                text("1", "2", "3", "4", "6", "7", "8", "9"));
+        assertEquals(0, m.getConflicts());
+        assertEquals(joined("0", "1", "2", "3", "4", "6", "7", "8", "9"),
+                new String(m.getContents()));
+    }
+
+    /** The same change on both sides is taken once. */
+    @Test
+    public void sameEditOnBothSides() {
+        byte[] changed = text("1", "2", "three", "4", "5", "6", "7", "8",
+                "9");
+        Merge3 m = Merge3.merge(text(BASE), changed, changed.clone());
+        assertEquals(0, m.getConflicts());
+        assertArrayEquals(changed, m.getContents());
+    }
+
+    /** A change on one side only is taken as it is. */
+    @Test
+    public void oneSideUnchanged() {
+        byte[] changed = text("1", "2", "3", "4", "five", "6", "7", "8",
+                "9");
+        Merge3 m = Merge3.merge(text(BASE), text(BASE), changed);
+        assertEquals(0, m.getConflicts());
+        assertArrayEquals(changed, m.getContents());
+    }
+
+    /** Different changes to the same region conflict, and the markers
+     * wrap only that region. */
+    @Test
+    public void overlappingEditsConflict() {
+        Merge3 m = Merge3.merge(text(BASE),
+                text("1", "2", "3", "ours", "5", "6", "7", "8", "nine"),
+                text("1", "2", "3", "theirs", "5", "6", "7", "8", "9"));
+        assertEquals(1, m.getConflicts());
+        assertEquals(joined("1", "2", "3", "<<<<<<< HEAD", "ours",
+                "=======", "theirs", ">>>>>>>", "5", "6", "7", "8",
+                "nine"), new String(m.getContents()));
+    }
+
+    /** Two separate overlaps make two conflicts. */
+    @Test
+    public void twoConflicts() {
+        Merge3 m = Merge3.merge(text(BASE),
+                text("a", "2", "3", "4", "5", "6", "7", "8", "b"),
+                text("c", "2", "3", "4", "5", "6", "7", "8", "d"));
+        assertEquals(2, m.getConflicts());
+        assertEquals(joined("<<<<<<< HEAD", "a", "=======", "c",
+                ">>>>>>>", "2", "3", "4", "5", "6", "7", "8",
+                "<<<<<<< HEAD", "b", "=======", "d", ">>>>>>>"),
+                new String(m.getContents()));
+    }
+
+    /** A file added on both sides merges against an empty base, and
+     * a final line without a newline still gets its own marker line. */
+    @Test
+    public void addedOnBothSides() {
+        Merge3 m = Merge3.merge(new byte[0], "ours".getBytes(),
+                "theirs".getBytes());
+        assertEquals(1, m.getConflicts());
+        assertEquals(joined("<<<<<<< HEAD", "ours", "=======", "theirs",
+                ">>>>>>>"), new String(m.getContents()));
+    }
+
+    /** Binary files are not merged line by line. */
+    @Test
+    public void binaryIsNotMerged() {
+        assertNull(Merge3.merge(text(BASE), new byte[] {1, 0, 2},
+                text(BASE)));
+    }
+
+    /** Makes the contents of a file.
+     * @param lines - its lines, without newlines
+     * @return the lines, each ending in a newline
+     */
+    private static byte[] text(String... lines) {
+        return joined(lines).getBytes();
+    }
+
+    /** Joins lines as a merge writes them.
+     * @param lines - the lines, without newlines
+     * @return the lines, each ending in the line separator
+     */
+    private static String joined(String... lines) {
+        StringBuilder result = new StringBuilder();
+        for (String line : lines) {
+            result.append(line).append(System.lineSeparator());
+        }
+        return result.toString();
+    }
+
+    /** The lines of the base version. */
+    private static final String[] BASE = {
+        "1", "2", "3", "4", "5", "6", "7", "8", "9",
+    };
+}
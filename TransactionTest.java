@@ -0,0 +1,385 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Transaction.recover, which leave the journal as a crash at
+ * each point of a transaction would and check the repository after
+ * recovery. Like gitlet itself, they work in the current directory,
+ * which must not hold a repository already; each test makes a fresh
+ * one and removes it afterwards.
+ * @author Ryan Van de Water
+ */
+public class TransactionTest {
+
+    /** Makes an empty repository. */
+    @Before
+    public void init() throws IOException {
+        assertFalse("Run the tests outside of any gitlet repository.",
+                Main.GITLET_DIR.exists());
+        forget();
+        Main.run("init");
+        initial = head();
+        graphLength = CommitGraph.GRAPH_FILE.length();
+        messagesLength = MessageIndex.MESSAGES_FILE.length();
+    }
+
+    /** Removes the repository and the file the tests commit. */
+    @After
+    public void remove() throws IOException {
+        try (Stream<Path> walk = Files.walk(Main.GITLET_DIR.toPath())) {
+            walk.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                .forEach(File::delete);
+        }
+        new File(FILE).delete();
+        forget();
+    }
+
+    /** A journal without a commit line is undone. */
+    @Test
+    public void noCommitLine() throws IOException {
+        Commit lost = crashBeforeCommit();
+        writeJournal(undoLines() + renameLine(staged, MASTER));
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** A journal cut off in the middle of a line is undone. */
+    @Test
+    public void cutMidLine() throws IOException {
+        Commit lost = crashBeforeCommit();
+        String rename = renameLine(staged, MASTER);
+        writeJournal(undoLines() + rename.substring(0, rename.length() / 2));
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** A journal whose commit line has the wrong checksum is undone. */
+    @Test
+    public void badChecksum() throws IOException {
+        Commit lost = crashBeforeCommit();
+        String steps = undoLines() + renameLine(staged, MASTER);
+        writeJournal(steps + "commit " + (crc(steps) + 1) + "\n");
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** A journal whose commit line was cut off is undone. */
+    @Test
+    public void cutCommitLine() throws IOException {
+        Commit lost = crashBeforeCommit();
+        String steps = undoLines() + renameLine(staged, MASTER);
+        writeJournal(steps + "commit " + crc(steps));
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** A committed journal is finished, including the renames already
+     * made, and its undo steps are ignored. */
+    @Test
+    public void committedPartlyRenamed() throws IOException {
+        Main.run("branch", "gone");
+        Commit made = crashBeforeCommit();
+        Transaction tx = Transaction.begin();
+        File masterTemp = tx.replace(MASTER, ref(made.getID()));
+        File side = new File(Branch.HEADS_DIR, "side");
+        File sideTemp = tx.replace(side, ref(initial));
+        File gone = new File(Branch.HEADS_DIR, "gone");
+        String steps = undoLines() + renameLine(masterTemp, MASTER)
+            + renameLine(sideTemp, side)
+            + "delete " + gone.getPath() + "\n";
+        writeJournal(steps + "commit " + crc(steps) + "\n");
+        Files.move(masterTemp.toPath(), MASTER.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        Transaction.recover();
+        assertEquals(0, Transaction.JOURNAL.length());
+        assertEquals(made.getID(), head());
+        assertEquals(initial, Branch.read("side").getHeadID());
+        assertFalse(gone.exists());
+        assertFalse(sideTemp.exists());
+        assertTrue(CommitGraph.GRAPH_FILE.length() > graphLength);
+        assertEquals(2, CommitGraph.get().size());
+        assertEquals(List.of(made.getID()), new MessageIndex().find("lost"));
+        commitFile();
+    }
+
+    /** A commit index that folded in a commit whose record never
+     * reached the commit graph is rebuilt, since the index is replaced
+     * outside of the journal. */
+    @Test
+    public void indexAheadOfGraph() throws IOException {
+        Commit lost = crashBeforeCommit();
+        CommitIndex.get().fold();
+        assertEquals(2, CommitIndex.get().size());
+        try (FileChannel channel = FileChannel.open(
+                CommitGraph.GRAPH_FILE.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(graphLength);
+        }
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** Commits are found in the tails of the commit index and the
+     * message index, and at the same positions once the tails are
+     * folded in, by full and by abbreviated ID and by message alike. */
+    @Test
+    public void tailMatchesFolded() throws IOException {
+        List<String> ids = new ArrayList<>();
+        ids.add(initial);
+        for (int i = 0; i < COMMITS; i += 1) {
+            Utils.writeContents(new File(FILE), "version " + i + "\n");
+            Main.run("add", FILE);
+            Main.run("commit", "version " + i);
+            ids.add(head());
+            if (i == COMMITS / 2) {
+                CommitIndex.get().fold();
+                new MessageIndex().fold();
+            }
+        }
+        assertTrue(CommitIndex.get().size() < ids.size());
+        assertFound(ids);
+        CommitIndex.get().fold();
+        new MessageIndex().fold();
+        assertEquals(ids.size(), CommitIndex.get().size());
+        assertFound(ids);
+        byte[] folded = Utils.readContents(CommitIndex.INDEX_FILE);
+        CommitIndex.rebuild(CommitGraph.get());
+        assertArrayEquals(folded, Utils.readContents(CommitIndex.INDEX_FILE));
+    }
+
+    /** A message table that folded in a message whose record was cut
+     * off by recovery is rebuilt, since the table is replaced outside
+     * of the journal. */
+    @Test
+    public void messageTableAheadOfMessages() throws IOException {
+        Commit lost = crashBeforeCommit();
+        new MessageIndex().fold();
+        assertEquals(MessageIndex.MESSAGES_FILE.length(),
+                new MessageIndex().covered());
+        writeJournal(undoLines());
+        Transaction.recover();
+        assertRolledBack(lost);
+    }
+
+    /** Tails that grow past their limit are folded in by the commit that
+     * makes them too long, which here, with the initial commit already
+     * in the tails, is the TAIL_LIMIT-th commit after it. Commits are
+     * found oldest first, whether they are in the table or in the
+     * tail. */
+    @Test
+    public void longTailIsFolded() {
+        String parent = initial;
+        String tree = Commit.read(initial).getTreeID();
+        List<String> made = new ArrayList<>();
+        List<String> same = new ArrayList<>();
+        for (int i = 0; i <= CommitIndex.TAIL_LIMIT; i += 1) {
+            Commit c = new Commit(i + 1, "tail " + i % 2, tree,
+                    List.of(parent));
+            c.save();
+            CommitGraph.get().append(c);
+            MessageIndex.append(c.getID(), c.getMessage());
+            parent = c.getID();
+            made.add(parent);
+            if (i % 2 == 0) {
+                same.add(parent);
+            }
+            if (i == CommitIndex.TAIL_LIMIT - 1) {
+                assertEquals(CommitGraph.get().size(),
+                        CommitIndex.get().size());
+                assertEquals(MessageIndex.MESSAGES_FILE.length(),
+                        new MessageIndex().covered());
+            }
+        }
+        assertEquals(CommitIndex.TAIL_LIMIT + 1,
+                CommitGraph.get().position(parent));
+        assertEquals(same, new MessageIndex().find("tail 0"));
+        assertEquals(made, new MessageIndex().grep(Pattern.compile("^tail")));
+        assertEquals(CommitIndex.TAIL_LIMIT + 2, new MessageIndex().size());
+    }
+
+    /** Leaves the repository as a crash during a commit would, after
+     * the commit graph and message index were appended to and the new
+     * head of master was staged, but before the journal was committed.
+     * @return the commit that was being made
+     */
+    private Commit crashBeforeCommit() {
+        Transaction tx = Transaction.begin();
+        tx.append(CommitGraph.GRAPH_FILE, MessageIndex.MESSAGES_FILE);
+        Commit c = new Commit(1, "lost",
+                Commit.read(initial).getTreeID(), List.of(initial));
+        c.save();
+        CommitGraph.get().append(c);
+        MessageIndex.append(c.getID(), c.getMessage());
+        staged = tx.replace(MASTER, ref(c.getID()));
+        return c;
+    }
+
+    /** Checks that a commit left by crashBeforeCommit was undone, and
+     * that the repository still takes new commits.
+     * @param lost - the commit
+     */
+    private void assertRolledBack(Commit lost) throws IOException {
+        assertEquals(0, Transaction.JOURNAL.length());
+        assertEquals(graphLength, CommitGraph.GRAPH_FILE.length());
+        assertEquals(messagesLength, MessageIndex.MESSAGES_FILE.length());
+        assertTrue(new MessageIndex().covered() <= messagesLength);
+        assertEquals(initial, head());
+        assertEquals(1, CommitGraph.get().size());
+        assertTrue(CommitIndex.get().size() <= 1);
+        assertEquals(-1, CommitIndex.get().find(lost.getID()));
+        assertTrue(new MessageIndex().find("lost").isEmpty());
+        commitFile();
+    }
+
+    /** Commits a file through the commit command, and checks that the
+     * commit lands on master. */
+    private void commitFile() throws IOException {
+        String before = head();
+        Utils.writeContents(new File(FILE), "after recovery\n");
+        Main.run("add", FILE);
+        Main.run("commit", "after recovery");
+        Commit after = Commit.read(head());
+        assertEquals(List.of(before), after.getParentIDs());
+        assertEquals(CommitGraph.get().size() - 1,
+                CommitGraph.get().position(after.getID()));
+        assertTrue(CommitIndex.get().size() <= CommitGraph.get().size());
+    }
+
+    /** Checks that the commit index finds every commit at its place in
+     * the commit graph, that an abbreviated ID names one commit exactly
+     * when no other commit shares it, and that the message index finds
+     * every commit by its message.
+     * @param ids - the IDs of every commit, in the order they were made
+     */
+    private static void assertFound(List<String> ids) {
+        CommitIndex index = CommitIndex.get();
+        for (int pos = 0; pos < ids.size(); pos += 1) {
+            String id = ids.get(pos);
+            assertEquals(pos, index.find(id));
+            assertEquals(id, index.resolve(id.substring(0, 8)));
+            String message = pos == 0 ? "initial commit"
+                : "version " + (pos - 1);
+            assertEquals(List.of(id), new MessageIndex().find(message));
+        }
+        assertEquals(ids.subList(1, ids.size()),
+                new MessageIndex().grep(Pattern.compile("^version")));
+        for (char digit : "0123456789abcdef".toCharArray()) {
+            String prefix = String.valueOf(digit);
+            List<String> sharing = new ArrayList<>();
+            for (String id : ids) {
+                if (id.startsWith(prefix)) {
+                    sharing.add(id);
+                }
+            }
+            if (sharing.size() > 1) {
+                try {
+                    index.resolve(prefix);
+                    fail("Prefix " + prefix + " is ambiguous.");
+                } catch (GitletException excp) {
+                    assertTrue(excp.getMessage().contains("ambiguous"));
+                }
+            } else {
+                assertEquals(sharing.isEmpty() ? null : sharing.get(0),
+                        index.resolve(prefix));
+            }
+        }
+    }
+
+    /** Formats the contents of a branch file.
+     * @param id - the ID of the head of the branch
+     * @return the contents
+     */
+    private static byte[] ref(String id) {
+        return (id + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Makes the undo steps of the commit made by crashBeforeCommit.
+     * @return the journal lines
+     */
+    private String undoLines() {
+        return "undo " + graphLength + " " + CommitGraph.GRAPH_FILE.getPath()
+            + "\nundo " + messagesLength + " "
+            + MessageIndex.MESSAGES_FILE.getPath() + "\n";
+    }
+
+    /** Makes the journal line of a staged replacement.
+     * @param temp - the file holding the new contents
+     * @param target - the file replaced
+     * @return the journal line
+     */
+    private static String renameLine(File temp, File target) {
+        return "rename " + temp.getPath() + " " + target.getPath() + "\n";
+    }
+
+    /** Computes the checksum a commit line holds.
+     * @param steps - the journal lines before it
+     * @return their CRC-32
+     */
+    private static long crc(String steps) {
+        CRC32 crc = new CRC32();
+        crc.update(steps.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /** Replaces the journal.
+     * @param text - its new contents
+     */
+    private static void writeJournal(String text) {
+        Utils.writeContents(Transaction.JOURNAL, text);
+    }
+
+    /** Reads the head of master.
+     * @return its ID
+     */
+    private static String head() {
+        return Branch.read("master").getHeadID();
+    }
+
+    /** Forgets what gitlet read from the last repository. */
+    private static void forget() {
+        Index.forget();
+        CommitGraph.forget();
+        CommitIndex.forget();
+        Config.forget();
+        ObjectStore.rescan();
+    }
+
+    /** The file the tests commit. */
+    private static final String FILE = "transaction-test.txt";
+
+    /** The ref of master. */
+    private static final File MASTER = new File(Branch.HEADS_DIR, "master");
+
+    /** The number of commits tailMatchesFolded makes. */
+    private static final int COMMITS = 20;
+
+    /** The ID of the initial commit. */
+    private String initial;
+
+    /** The temporary file holding the head of master staged by
+     * crashBeforeCommit. */
+    private File staged;
+
+    /** The length of the commit graph before anything was committed. */
+    private long graphLength;
+
+    /** The length of the messages file before anything was committed. */
+    private long messagesLength;
+}
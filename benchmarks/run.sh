@@ -0,0 +1,15 @@
+#!/bin/sh
+# Usage: benchmarks/run.sh [JMH OPTIONS]
+# Runs the benchmarks built by 'mvn -B package' in a scratch directory,
+# which the benchmarks fill with synthetic repositories, since gitlet
+# always works on the repository in the current directory. JMH options
+# such as a benchmark name pattern or -p files=1000 are passed on.
+
+jar=$(cd "$(dirname "$0")" && pwd)/target/benchmarks.jar
+if [ ! -f "$jar" ]; then
+    echo "Build the benchmarks first: cd benchmarks && mvn -B package" >&2
+    exit 1
+fi
+scratch=$(mktemp -d)
+trap 'rm -rf "$scratch"' EXIT
+cd "$scratch" && java -jar "$jar" "$@"
@@ -0,0 +1,101 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Times writing and reading an object payload through each codec, at
+ * each deflate level, on text like that of a source file.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    /** The codec: none, or deflate at a level from 1 to 9. */
+    @Param({"none", "1", "6", "9"})
+    public String level;
+
+    /** The size of the payload, in bytes. */
+    @Param({"4096", "1048576"})
+    public int size;
+
+    /** Makes the payload and compresses it once for reading. */
+    @Setup(Level.Trial)
+    public void build() throws IOException {
+        codec = level.equals("none") ? new StoredCodec()
+            : new DeflateCodec(Integer.parseInt(level));
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < size) {
+            text.append(WORDS[random.nextInt(WORDS.length)])
+                .append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+        payload = text.substring(0, size).getBytes(StandardCharsets.UTF_8);
+        compressed = compress();
+    }
+
+    /** Compresses the payload.
+     * @return the compressed bytes
+     */
+    @Benchmark
+    public byte[] compress() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.compress(bytes)) {
+            out.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Decompresses the compressed payload.
+     * @return the payload
+     */
+    @Benchmark
+    public byte[] decompress() throws IOException {
+        try (InputStream in = codec.decompress(
+                new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /** The words the payload is made of. */
+    private static final String[] WORDS = {
+        "static", "void", "int", "return", "if", "else", "for", "while",
+        "new", "String", "file", "=", "+=", "==", "(", ")", "{", "}", ";",
+        "commit", "tree", "blob", "index", "branch", "merge", "0", "1",
+    };
+
+    /** The seed of the random generator. */
+    private static final long SEED = 61;
+
+    /** The codec. */
+    private Codec codec;
+
+    /** The payload. */
+    private byte[] payload;
+
+    /** The payload, compressed by the codec. */
+    private byte[] compressed;
+}
@@ -0,0 +1,192 @@
+package gitlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Times the gitlet commands, run in-process through Main.run, on a
+ * SyntheticRepo of every combination of history depth, file count and
+ * file size. Each benchmark method gets a fresh repository in its own
+ * fork. Commands that change the repository have whatever they undo or
+ * prepare done in per-invocation setup, outside the timing.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandBenchmark {
+
+    /** The number of commits on master. */
+    @Param({"10", "100"})
+    public int depth;
+
+    /** The number of files. */
+    @Param({"100", "1000"})
+    public int files;
+
+    /** The rough size of each file, in bytes. */
+    @Param({"1024", "16384"})
+    public int fileSize;
+
+    /** Builds the repository and silences the commands' output. */
+    @Setup(Level.Trial)
+    public void build() {
+        SyntheticRepo.create(depth, files, fileSize);
+        masterHead = SyntheticRepo.commit("master " + (depth - 1));
+        int others = Math.max(1, depth / 4);
+        otherHead = SyntheticRepo.commit(others > 1
+                ? "other " + (others - 1) : "master 0");
+        splitPoint = SyntheticRepo.commit("master 0");
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Puts the commands' output back. */
+    @TearDown(Level.Trial)
+    public void restore() {
+        System.setOut(stdout);
+    }
+
+    /** Changes a file before add, and stages it too before commit. */
+    @State(Scope.Thread)
+    public static class Edit {
+
+        /** Rewrites one tracked file, and stages it if the benchmark is
+         * commit. */
+        @Setup(Level.Invocation)
+        public void edit() throws Exception {
+            count += 1;
+            Files.writeString(Path.of(FILE), "edit " + count + "\n");
+            if (staged) {
+                SyntheticRepo.run("add", FILE);
+            }
+        }
+
+        /** Whether or not to stage the change. */
+        boolean staged;
+
+        /** The number of edits so far. */
+        private int count;
+    }
+
+    /** An Edit that is also staged. */
+    @State(Scope.Thread)
+    public static class StagedEdit extends Edit {
+        /** Marks the edit as staged. */
+        public StagedEdit() {
+            staged = true;
+        }
+    }
+
+    /** Puts master back to its head before each merge. */
+    @State(Scope.Thread)
+    public static class Unmerged {
+
+        /** Resets master to where it was before the last merge.
+         * @param repo - the repository
+         */
+        @Setup(Level.Invocation)
+        public void unmerge(CommandBenchmark repo) {
+            SyntheticRepo.run("reset", repo.masterHead);
+        }
+    }
+
+    /** Runs status on the unchanged working tree. */
+    @Benchmark
+    public void status() {
+        SyntheticRepo.run("status");
+    }
+
+    /** Runs log over all of master. */
+    @Benchmark
+    public void log() {
+        SyntheticRepo.run("log");
+    }
+
+    /** Runs find for the message of the first commit. */
+    @Benchmark
+    public void find() {
+        SyntheticRepo.run("find", "master 0");
+    }
+
+    /** Stages one changed file.
+     * @param edit - the change, made before each call
+     */
+    @Benchmark
+    public void add(Edit edit) {
+        SyntheticRepo.run("add", FILE);
+    }
+
+    /** Commits one staged change.
+     * @param edit - the staged change, made before each call
+     */
+    @Benchmark
+    public void commit(StagedEdit edit) {
+        SyntheticRepo.run("commit", "benchmark");
+    }
+
+    /** Switches to the other branch and back, as one operation. */
+    @Benchmark
+    public void checkout() {
+        SyntheticRepo.run("checkout", "other");
+        SyntheticRepo.run("checkout", "master");
+    }
+
+    /** Resets master to its first commit and back, as one operation. */
+    @Benchmark
+    public void reset() {
+        SyntheticRepo.run("reset", splitPoint);
+        SyntheticRepo.run("reset", masterHead);
+    }
+
+    /** Merges other into master.
+     * @param unmerged - undoes the merge before each call
+     */
+    @Benchmark
+    public void merge(Unmerged unmerged) {
+        SyntheticRepo.run("merge", "other");
+    }
+
+    /** Finds the split point of master and other.
+     * @return the split point
+     */
+    @Benchmark
+    public Commit findSplit() {
+        return Main.findSplit(new Branch("master", Commit.read(masterHead)),
+                new Branch("other", Commit.read(otherHead)));
+    }
+
+    /** The file the add and commit benchmarks change. */
+    private static final String FILE = SyntheticRepo.name(0);
+
+    /** The ID of the head of master. */
+    private String masterHead;
+
+    /** The ID of the head of other. */
+    private String otherHead;
+
+    /** The ID of the commit master and other share. */
+    private String splitPoint;
+
+    /** Where the commands' output went before the benchmark. */
+    private PrintStream stdout;
+}
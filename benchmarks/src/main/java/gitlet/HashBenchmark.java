@@ -0,0 +1,115 @@
+package gitlet;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Times Utils.sha1 on contents of several sizes and on the header of
+ * a commit, and the conversions between IDs and hexadecimal. Run with
+ * -prof gc to see that hashing allocates nothing but its result.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+    /** The size of the contents hashed, in bytes. */
+    @Param({"64", "4096", "1048576"})
+    public int size;
+
+    /** Makes the contents and a commit header. */
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(SEED);
+        contents = new byte[size];
+        random.nextBytes(contents);
+        raw = new byte[ObjectId.SIZE];
+        random.nextBytes(raw);
+        hex = Utils.toHex(raw, 0, raw.length);
+        id = ObjectId.fromHex(hex);
+        header = new Commit(0, "benchmark", hex, List.of()).header();
+    }
+
+    /** Hashes the contents.
+     * @return their ID
+     */
+    @Benchmark
+    public String sha1() {
+        return Utils.sha1(contents);
+    }
+
+    /** Hashes a commit header, as making every commit does.
+     * @return the ID of the commit
+     */
+    @Benchmark
+    public String sha1Header() {
+        return Utils.sha1(header);
+    }
+
+    /** Formats a raw ID in hexadecimal.
+     * @return its 40 digits
+     */
+    @Benchmark
+    public String toHex() {
+        return Utils.toHex(raw, 0, raw.length);
+    }
+
+    /** Parses an ID into its raw bytes.
+     * @return the 20 bytes
+     */
+    @Benchmark
+    public byte[] fromHex() {
+        return Utils.fromHex(hex);
+    }
+
+    /** Parses an ID into an ObjectId.
+     * @return the ObjectId
+     */
+    @Benchmark
+    public ObjectId parseObjectId() {
+        return ObjectId.fromHex(hex);
+    }
+
+    /** Formats an ObjectId in hexadecimal.
+     * @return its 40 digits
+     */
+    @Benchmark
+    public String formatObjectId() {
+        return id.toString();
+    }
+
+    /** The seed of the random generator. */
+    private static final long SEED = 61;
+
+    /** The contents hashed. */
+    private byte[] contents;
+
+    /** The header of a commit. */
+    private String header;
+
+    /** A raw ID. */
+    private byte[] raw;
+
+    /** The same ID, in hexadecimal. */
+    private String hex;
+
+    /** The same ID, as an ObjectId. */
+    private ObjectId id;
+}
@@ -0,0 +1,72 @@
+package gitlet;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Times what depends on the depth of the history alone, on a
+ * SyntheticRepo.chain of commits without files, up to 10000 commits
+ * deep. Making a commit should cost the same at every depth.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+    /** The number of commits on master. */
+    @Param({"100", "1000", "10000"})
+    public int depth;
+
+    /** Builds the repository. */
+    @Setup(Level.Trial)
+    public void build() {
+        SyntheticRepo.chain(depth);
+        masterHead = Branch.read("master").getHeadID();
+        otherHead = Branch.read("other").getHeadID();
+        headTree = Commit.read(masterHead).getTreeID();
+    }
+
+    /** Builds the commit a commit command would make on master, which
+     * hashes only its header however deep the history is.
+     * @return the commit
+     */
+    @Benchmark
+    public Commit commitHash() {
+        return new Commit(0, "benchmark", headTree, List.of(masterHead));
+    }
+
+    /** Finds the split point of master and other, which is the initial
+     * commit, so the whole of master is walked through the commit graph.
+     * @return the split point
+     */
+    @Benchmark
+    public Commit mergeBase() {
+        return MergeBase.find(Commit.read(masterHead),
+                Commit.read(otherHead));
+    }
+
+    /** The ID of the head of master. */
+    private String masterHead;
+
+    /** The ID of the head of other. */
+    private String otherHead;
+
+    /** The ID of the tree of the head of master. */
+    private String headTree;
+}
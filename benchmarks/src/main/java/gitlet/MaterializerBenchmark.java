@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Times writing every file of a commit out of the object store with
+ * the Materializer, one at a time and with several in flight.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaterializerBenchmark {
+
+    /** The most files written at once; 1 writes them in place. */
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    /** The number of files. */
+    @Param({"1000"})
+    public int files;
+
+    /** The rough size of each file, in bytes. */
+    @Param({"1024", "65536"})
+    public int fileSize;
+
+    /** Builds a one-commit repository to take the blobs from. */
+    @Setup(Level.Trial)
+    public void build() {
+        SyntheticRepo.create(1, files, fileSize);
+        blobs = Index.get().getEntries();
+    }
+
+    /** Writes every file into a folder outside the working tree. */
+    @Benchmark
+    public void materialize() {
+        try (Materializer writer = new Materializer(threads)) {
+            for (Map.Entry<String, String> e : blobs.entrySet()) {
+                writer.write(e.getValue(), new File(OUT, e.getKey()));
+            }
+            writer.finish();
+        }
+    }
+
+    /** The folder the files are written to. */
+    private static final File OUT = new File("materialized");
+
+    /** The paths of the files and the IDs of their blobs. */
+    private TreeMap<String, String> blobs;
+}
@@ -0,0 +1,230 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compares the binary format of Encoder and Decoder with Java
+ * serialization, which gitlet used to store trees and commits with, on
+ * trees of several sizes and on a commit, none of which needs a
+ * repository. Since Tree and Commit are no longer Serializable, the
+ * old format is measured on OldTree and OldCommit, which hold the same
+ * fields as trees and commits did when they were serialized. Run with
+ * -prof gc to compare how much each allocates.
+ * @author Ryan Van de Water
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+
+    /** The number of files in the tree. */
+    @Param({"10", "1000"})
+    public int entries;
+
+    /** Makes the tree and commit, and their encodings. */
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(SEED);
+        HashMap<String, String> files = new HashMap<>();
+        for (int i = 0; i < entries; i += 1) {
+            byte[] id = new byte[Utils.UID_LENGTH / 2];
+            random.nextBytes(id);
+            files.put("f" + i + ".txt", Utils.toHex(id, 0, id.length));
+        }
+        tree = new Tree(files);
+        commit = new Commit(0, "benchmark", tree.getID(), List.of());
+        oldTree = new OldTree(new TreeMap<>(files), tree.getID());
+        oldCommit = new OldCommit(commit);
+        serializedTree = Utils.serialize(oldTree);
+        serializedCommit = Utils.serialize(oldCommit);
+        encodedTree = tree.encode(Encoder.get()).toByteArray();
+        encodedCommit = commit.encode(Encoder.get()).toByteArray();
+    }
+
+    /** Writes the tree with Java serialization.
+     * @return the serialized tree
+     */
+    @Benchmark
+    public byte[] serializeTree() {
+        return Utils.serialize(oldTree);
+    }
+
+    /** Writes the commit with Java serialization.
+     * @return the serialized commit
+     */
+    @Benchmark
+    public byte[] serializeCommit() {
+        return Utils.serialize(oldCommit);
+    }
+
+    /** Reads the tree back with Java serialization.
+     * @return the tree
+     */
+    @Benchmark
+    public OldTree deserializeTree() throws Exception {
+        return deserialize(serializedTree, OldTree.class);
+    }
+
+    /** Reads the commit back with Java serialization.
+     * @return the commit
+     */
+    @Benchmark
+    public OldCommit deserializeCommit() throws Exception {
+        return deserialize(serializedCommit, OldCommit.class);
+    }
+
+    /** Writes the tree in the binary format.
+     * @return the encoder holding it
+     */
+    @Benchmark
+    public Encoder encodeTree() {
+        return tree.encode(Encoder.get());
+    }
+
+    /** Writes the commit in the binary format.
+     * @return the encoder holding it
+     */
+    @Benchmark
+    public Encoder encodeCommit() {
+        return commit.encode(Encoder.get());
+    }
+
+    /** Reads the tree back from the binary format.
+     * @return the tree
+     */
+    @Benchmark
+    public Tree decodeTree() {
+        return Tree.decode(new Decoder(encodedTree), tree.getID());
+    }
+
+    /** Reads the commit back from the binary format.
+     * @return the commit
+     */
+    @Benchmark
+    public Commit decodeCommit() {
+        return Commit.decode(new Decoder(encodedCommit), commit.getID());
+    }
+
+    /** Reads back an object written by Utils.serialize.
+     * @param bytes - the serialized object
+     * @param expected - its class
+     * @param <T> - its type
+     * @return the object
+     */
+    private static <T> T deserialize(byte[] bytes, Class<T> expected)
+            throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes))) {
+            return expected.cast(in.readObject());
+        }
+    }
+
+    /** A tree as it used to be serialized: its entries, its subtrees
+     * and its ID. */
+    static class OldTree implements Serializable {
+
+        /** A tree of files in one directory.
+         * @param files - file names and the IDs of their blobs
+         * @param id - the ID of the tree
+         */
+        OldTree(TreeMap<String, String> files, String id) {
+            entries = files;
+            subtrees = new TreeMap<>();
+            treeID = id;
+        }
+
+        /** File names and the IDs of their blobs. */
+        private final TreeMap<String, String> entries;
+
+        /** Subdirectory names and the IDs of their trees. */
+        private final TreeMap<String, String> subtrees;
+
+        /** The ID of the tree. */
+        private final String treeID;
+    }
+
+    /** A commit as it used to be serialized, with the same fields as
+     * Commit. */
+    static class OldCommit implements Serializable {
+
+        /** A copy of a commit.
+         * @param c - the commit
+         */
+        OldCommit(Commit c) {
+            timestamp = c.getTime();
+            message = c.getMessage();
+            tree = c.getTreeID();
+            parents = new ArrayList<>(c.getParentIDs());
+            generation = c.getGeneration();
+            commitID = c.getID();
+        }
+
+        /** When the commit was made. */
+        private final long timestamp;
+
+        /** The commit's message. */
+        private final String message;
+
+        /** The ID of the commit's tree. */
+        private final String tree;
+
+        /** The IDs of the commit's parents. */
+        private final ArrayList<String> parents;
+
+        /** The commit's generation number. */
+        private final int generation;
+
+        /** The ID of the commit. */
+        private final String commitID;
+    }
+
+    /** The seed of the random generator. */
+    private static final long SEED = 61;
+
+    /** The tree encoded. */
+    private Tree tree;
+
+    /** The commit encoded. */
+    private Commit commit;
+
+    /** The tree, in its old form. */
+    private OldTree oldTree;
+
+    /** The commit, in its old form. */
+    private OldCommit oldCommit;
+
+    /** The tree, as written by Utils.serialize. */
+    private byte[] serializedTree;
+
+    /** The commit, as written by Utils.serialize. */
+    private byte[] serializedCommit;
+
+    /** The tree, as written by Tree.encode. */
+    private byte[] encodedTree;
+
+    /** The commit, as written by Commit.encode. */
+    private byte[] encodedCommit;
+}
@@ -0,0 +1,219 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Generates repositories of a chosen size for the benchmarks, in the
+ * current directory, by running gitlet commands in this process.
+ *
+ * A repository has FILES files of about FILESIZE bytes, 100 to a
+ * directory, and a master branch DEPTH commits deep, whose messages are
+ * "master 0" to "master DEPTH-1". Every commit after the first rewrites
+ * a line in 1% of the files. A branch named other leaves master at its
+ * first commit and has a quarter as many commits of its own, named
+ * "other 1" and so on, rewriting other lines of other files, so that
+ * merging it takes real work. Everything is drawn from one seeded
+ * random generator, so the same sizes always give the same repository.
+ *
+ * Since gitlet always works in the current directory, the benchmarks
+ * must be run from an empty directory, as benchmarks/run.sh does;
+ * create() refuses to clear a directory it did not fill itself.
+ * @author Ryan Van de Water
+ */
+class SyntheticRepo {
+
+    /** Replaces the contents of the current directory with a new
+     * repository.
+     * @param depth - the number of commits on master
+     * @param files - the number of files
+     * @param fileSize - the rough size of each file, in bytes
+     */
+    static void create(int depth, int files, int fileSize) {
+        clear();
+        Random random = new Random(SEED);
+        int lines = Math.max(1, fileSize / LINE_SIZE);
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            Files.createFile(MARKER);
+            run("init");
+            for (int i = 0; i < files; i += 1) {
+                write(i, lines, -1, 0);
+            }
+            for (int d = 0; d * PER_DIR < files; d += 1) {
+                run("add", "d" + d);
+            }
+            run("commit", "master 0");
+            run("branch", "other");
+            run("checkout", "other");
+            history(random, "other", Math.max(1, depth / 4), files, lines);
+            run("checkout", "master");
+            history(random, "master", depth, files, lines);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    /** Replaces the contents of the current directory with a
+     * repository that has commits but no files, for timing what depends
+     * only on the depth of the history. Master is a chain of DEPTH
+     * commits counting the initial one, and other leaves it at the
+     * initial commit with one commit of its own. The commits are stored
+     * and recorded in the commit graph directly rather than by the
+     * commit command, so that even 10000 of them take seconds.
+     * @param depth - the number of commits on master
+     */
+    static void chain(int depth) {
+        clear();
+        try {
+            Files.createFile(MARKER);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        run("init");
+        Commit root = Branch.current().getHEAD();
+        Commit head = root;
+        for (int i = 1; i < depth; i += 1) {
+            head = store(new Commit(i, "master " + i, root.getTreeID(),
+                    List.of(head.getID())));
+        }
+        Commit other = store(new Commit(depth, "other 1", root.getTreeID(),
+                List.of(root.getID())));
+        Transaction tx = Transaction.begin();
+        new Branch("master", head).write(tx);
+        new Branch("other", other).write(tx);
+        tx.commit();
+    }
+
+    /** Stores a commit and records it in the commit graph.
+     * @param c - the commit
+     * @return C
+     */
+    private static Commit store(Commit c) {
+        c.save();
+        CommitGraph.get().append(c);
+        return c;
+    }
+
+    /** Finds a commit by its message.
+     * @param message - the message, such as "master 3"
+     * @return the ID of the commit
+     */
+    static String commit(String message) {
+        List<String> found = new MessageIndex().find(message);
+        if (found.isEmpty()) {
+            throw new IllegalStateException("No commit " + message);
+        }
+        return found.get(0);
+    }
+
+    /** Runs a gitlet command as gitlet.Main would, but in this process.
+     * @param args - the command and its operands
+     */
+    static void run(String... args) {
+        try {
+            Main.run(args);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Makes the commits of one branch, after its first.
+     * @param random - the random generator
+     * @param branch - the name of the branch
+     * @param commits - the number of commits the branch ends up with,
+     *                counting the first
+     * @param files - the number of files
+     * @param lines - the number of lines in each file
+     */
+    private static void history(Random random, String branch, int commits,
+                                int files, int lines) throws IOException {
+        int changes = Math.max(1, files / 100);
+        for (int c = 1; c < commits; c += 1) {
+            for (int k = 0; k < changes; k += 1) {
+                int i = random.nextInt(files);
+                write(i, lines, random.nextInt(lines), c);
+                run("add", name(i));
+            }
+            run("commit", branch + " " + c);
+        }
+    }
+
+    /** Writes one file, changing one of its lines from the original.
+     * @param i - the number of the file
+     * @param lines - the number of lines in it
+     * @param changed - the line to change, or -1 for none
+     * @param version - what to change it to
+     */
+    private static void write(int i, int lines, int changed, int version)
+            throws IOException {
+        Path p = Path.of(name(i));
+        StringBuilder text = new StringBuilder();
+        if (Files.exists(p)) {
+            List<String> old = Files.readAllLines(p);
+            old.set(changed, String.format("file %6d line %6d version %6d"
+                    + " %28s", i, changed, version, ""));
+            text.append(String.join("\n", old)).append('\n');
+        } else {
+            Files.createDirectories(p.getParent());
+            for (int line = 0; line < lines; line += 1) {
+                text.append(String.format("file %6d line %6d version %6d"
+                        + " %28s\n", i, line, 0, ""));
+            }
+        }
+        Files.writeString(p, text);
+    }
+
+    /** Names a generated file.
+     * @param i - the number of the file
+     * @return its path
+     */
+    static String name(int i) {
+        return "d" + (i / PER_DIR) + "/f" + i + ".txt";
+    }
+
+    /** Empties the current directory, if it is empty already or was
+     * filled by create(), and forgets what gitlet read from it. */
+    private static void clear() {
+        File[] present = new File(".").listFiles();
+        if (present != null && present.length > 0
+                && !Files.exists(MARKER)) {
+            throw new IllegalStateException("Run the benchmarks from an"
+                    + " empty directory, as benchmarks/run.sh does.");
+        }
+        try (Stream<Path> walk = Files.walk(Path.of("."))) {
+            walk.sorted(Comparator.reverseOrder())
+                .filter(p -> !p.equals(Path.of(".")))
+                .map(Path::toFile).forEach(File::delete);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Index.forget();
+        CommitGraph.forget();
+        CommitIndex.forget();
+        Config.forget();
+        ObjectStore.rescan();
+    }
+
+    /** Marks a directory as filled by create(). */
+    private static final Path MARKER = Path.of(".gitlet-bench");
+
+    /** The number of files in each directory. */
+    private static final int PER_DIR = 100;
+
+    /** The size of each line of a generated file. */
+    private static final int LINE_SIZE = 64;
+
+    /** The seed of the random generator. */
+    private static final long SEED = 61;
+}
@@ -1,60 +1,145 @@
 package gitlet;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 
-/** Represents the contents of a file.
+/** Represents the contents of a file. A blob is stored in the object
+ * store as the file's raw bytes, so any file, text or binary, comes
+ * back exactly as it was added. Files are hashed, compressed and copied
+ * through a fixed-size buffer, a chunk at a time, so adding a file takes
+ * the same memory however large it is.
  * @author Ryan Van de Water */
-public class Blob implements Serializable {
+class Blob {
 
-    /** Constructor for a Blob object given a file.
+    /** Computes the ID a file would have as a blob, without storing it.
      * @param f - the given file
+     * @return the ID for the Blob
      */
-    public Blob(File f) {
-        file = f;
-        contents = gitlet.Utils.readContentsAsString(file);
-        List<Object> sha1Passed = new ArrayList<>();
-        sha1Passed.add(gitlet.Utils.serialize(contents));
-        blobID = gitlet.Utils.sha1(sha1Passed);
+    static String hash(File f) {
+        return copy(f, null);
     }
 
-    /** Setter method for the contents instance variable.
-     * @param newCont - the updated contents to be
-     * written into the Blob.
+    /** Stores a file as a blob, hashing it and writing the object in the
+     * same pass.
+     * @param f - the given file
+     * @return the ID for the Blob
      */
-    void setContents(String newCont) {
-        gitlet.Utils.writeContents(file, newCont);
-        contents = newCont;
+    static String store(File f) {
+        File temp = ObjectStore.tempFile(ObjectStore.BLOBS);
+        String id;
+        try (OutputStream out = ObjectStore.create(temp)) {
+            id = copy(f, out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ObjectStore.install(temp, ObjectStore.BLOBS, id);
+        return id;
     }
 
-    /** Getter method for the file instance variable.
-     * @return the file variable
+    /** Opens the contents of a blob for reading, from memory if the
+     * ObjectCache holds them.
+     * @param id - sha-1 hash code of the blob
+     * @return a stream of the contents of the file the blob represents
      */
-    File getFile() {
-        return file;
+    static InputStream open(String id) {
+        byte[] cached = ObjectCache.get().lookup(id, byte[].class);
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+        return ObjectStore.open(ObjectStore.BLOBS, id);
     }
 
-    /** Getter method for the contents instance variable.
-     * @return contents as they are in the Blob
+    /** Reads the whole contents of a blob into memory, keeping them in
+     * the ObjectCache.
+     * @param id - sha-1 hash code of the blob
+     * @return the contents of the file the blob represents, which the
+     * caller must not change
      */
-    String getContents() {
-        return contents;
+    static byte[] read(String id) {
+        ObjectCache cache = ObjectCache.get();
+        byte[] result = cache.lookup(id, byte[].class);
+        if (result != null) {
+            return result;
+        }
+        try (InputStream in = ObjectStore.open(ObjectStore.BLOBS, id)) {
+            result = in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        cache.put(id, result, result.length);
+        return result;
     }
 
-    /** Getter method for the ID instance variable.
-     * @return the ID for the Blob
+    /** Writes the contents of a blob into a file, creating or
+     * overwriting it, and the directories it is in, as needed. The
+     * contents go to a temporary file next to it first, which is then
+     * renamed over it, so the file is never seen half written.
+     * @param id - sha-1 hash code of the blob
+     * @param dest - the file to write
      */
-    String getID() {
-        return blobID;
+    static void copyTo(String id, File dest) {
+        File dir = dest.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File temp = null;
+        try {
+            temp = File.createTempFile(".gitlet", ".tmp", dir);
+            try (InputStream in = open(id);
+                 OutputStream out = Files.newOutputStream(temp.toPath())) {
+                in.transferTo(out);
+            }
+            Files.move(temp.toPath(), dest.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            if (temp != null) {
+                temp.delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
     }
 
-    /** Denotes the file that the Blob represents. */
-    private File file;
+    /** Streams a file through the digest, and into OUT if there is one.
+     * The ID covers a "blob SIZE" header followed by a zero byte and
+     * the contents, so blobs can never share an ID with other text.
+     * @param f - the file to read
+     * @param out - where to write a copy of the contents, or null
+     * @return the ID for the Blob
+     */
+    private static String copy(File f, OutputStream out) {
+        MessageDigest md = Utils.digest();
+        ByteBuffer chunk = BUFFER.get();
+        try (FileChannel in = FileChannel.open(f.toPath(),
+                StandardOpenOption.READ)) {
+            md.update(String.format("blob %d\0", in.size())
+                    .getBytes(StandardCharsets.UTF_8));
+            chunk.clear();
+            while (in.read(chunk) >= 0) {
+                md.update(chunk.array(), 0, chunk.position());
+                if (out != null) {
+                    out.write(chunk.array(), 0, chunk.position());
+                }
+                chunk.clear();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        byte[] digest = md.digest();
+        return Utils.toHex(digest, 0, digest.length);
+    }
 
-    /** Denotes the contents of the file the Blob represents. */
-    private String contents;
+    /** The number of bytes read from a file at a time. */
+    private static final int CHUNK_SIZE = 1 << 16;
 
-    /** Denotes the sha-1 hash code specific to this blob. */
-    private String blobID;
+    /** A chunk buffer for each thread, reused for every file it reads. */
+    private static final ThreadLocal<ByteBuffer> BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_SIZE));
 }
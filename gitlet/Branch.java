@@ -1,14 +1,21 @@
 package gitlet;
 
-import java.io.Serializable;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /** Represents a reference to commits and allows the
  * client to separate out different commits onto different references.
+ *
+ * Each branch is a file in .gitlet/refs/heads named after the branch
+ * and holding the ID of its head commit, and .gitlet/HEAD names the
+ * current branch, as git lays them out. A branch only reads its head
+ * commit from the object store the first time it is asked for it, so
+ * commands that only need names and IDs never read a commit at all.
  * @author Ryan Van de Water
  */
-public class Branch implements Serializable {
+public class Branch {
 
     /** Constructor for a Branch object given a client-specified
      * name and commit.
@@ -16,37 +23,84 @@ public class Branch implements Serializable {
      * @param front - the commit at the head of this commit
      */
     public Branch(String branchName, Commit front) {
+        this(branchName, front.getID());
         head = front;
+    }
+
+    /** Constructor for a Branch object whose head is only known by ID.
+     * @param branchName - client-specified name
+     * @param frontID - the ID of the commit at the head of the branch
+     */
+    Branch(String branchName, String frontID) {
         name = branchName;
-        List<Object> sha1Passed = new ArrayList<>();
-        sha1Passed.add(Utils.serialize(head));
-        sha1Passed.add(Utils.serialize(name));
-        branchID = Utils.sha1(sha1Passed);
-        tracked = new ArrayList<>();
-        if (!(front.getTracking() == null)) {
-            tracked.addAll(front.getTracking().keySet());
+        headID = frontID;
+    }
+
+    /** Reads the current branch.
+     * @return the branch HEAD names
+     */
+    static Branch current() {
+        String ref = Utils.readContentsAsString(HEAD_FILE).trim();
+        if (!ref.startsWith(REF_PREFIX)) {
+            throw Utils.error("Unrecognized HEAD %s.", ref);
         }
+        return read(ref.substring(REF_PREFIX.length()));
+    }
+
+    /** Reads a branch.
+     * @param branchName - the name of the branch
+     * @return the branch, or null if there is no such branch
+     */
+    static Branch read(String branchName) {
+        File file = new File(HEADS_DIR, branchName);
+        if (!file.isFile()) {
+            return null;
+        }
+        String id = Utils.readContentsAsString(file).trim();
+        if (id.length() != Utils.UID_LENGTH) {
+            throw Utils.error("Unrecognized branch %s.", branchName);
+        }
+        return new Branch(branchName, id);
+    }
+
+    /** Checks whether a branch exists.
+     * @param branchName - the name of the branch
+     * @return whether or not there is a branch of that name
+     */
+    static boolean exists(String branchName) {
+        return new File(HEADS_DIR, branchName).isFile();
+    }
+
+    /** Lists every branch.
+     * @return the names of the branches, in order
+     */
+    static List<String> names() {
+        List<String> result = Utils.plainFilenamesIn(HEADS_DIR);
+        return result == null ? new ArrayList<>() : result;
     }
 
-    /** Removes a file from the list of tracked files.
-     * @param file - File to be removed
+    /** Stores the head of this branch when a transaction commits,
+     * creating the branch if it is new.
+     * @param tx - the transaction
      */
-    void removeFrom(String file) {
-        tracked.remove(file);
+    void write(Transaction tx) {
+        HEADS_DIR.mkdirs();
+        tx.replace(new File(HEADS_DIR, name), refBytes(headID));
     }
 
-    /** Getter method for the list of tracked files in the branch.
-     * @return the list of tracked files in the branch
+    /** Makes this the current branch when a transaction commits,
+     * without touching its head.
+     * @param tx - the transaction
      */
-    List<String> getTracked() {
-        return tracked;
+    void makeCurrent(Transaction tx) {
+        tx.replace(HEAD_FILE, refBytes(REF_PREFIX + name));
     }
 
-    /** Getter method for the sha-1 hash code specific to this branch.
-     * @return the branch ID
+    /** Removes this branch when a transaction commits.
+     * @param tx - the transaction
      */
-    String getID() {
-        return branchID;
+    void delete(Transaction tx) {
+        tx.delete(new File(HEADS_DIR, name));
     }
 
     /** Getter method for the name of this branch.
@@ -56,18 +110,22 @@ public class Branch implements Serializable {
         return name;
     }
 
-    /** Getter method for the Head commit of this branch.
-     * @return the latest commit made in this branch
+    /** Getter method for the ID of the Head commit of this branch.
+     * @return the ID of the latest commit made in this branch
      */
-    Commit getHEAD() {
-        return head;
+    String getHeadID() {
+        return headID;
     }
 
-    /** Setter method for the name of the branch.
-     * @param newName - updated name
+    /** Getter method for the Head commit of this branch, which is read
+     * from the object store the first time it is needed.
+     * @return the latest commit made in this branch
      */
-    void setName(String newName) {
-        name = newName;
+    Commit getHEAD() {
+        if (head == null) {
+            head = Commit.read(headID);
+        }
+        return head;
     }
 
     /** Setter method for the Head commit of this object.
@@ -75,18 +133,32 @@ public class Branch implements Serializable {
      */
     void setHEAD(Commit c) {
         head = c;
+        headID = c.getID();
     }
 
-    /** Client-specified name of the branch object. */
-    private String name;
+    /** Formats the contents of a ref file.
+     * @param ref - what the ref holds
+     * @return REF as a line
+     */
+    private static byte[] refBytes(String ref) {
+        return (ref + "\n").getBytes(StandardCharsets.UTF_8);
+    }
 
-    /** The latest commit made in this branch. */
-    private Commit head;
+    /** The file naming the current branch. */
+    static final File HEAD_FILE = Utils.join(".gitlet", "HEAD");
+
+    /** The folder holding a file for every branch. */
+    static final File HEADS_DIR = Utils.join(".gitlet", "refs", "heads");
 
-    /** The sha-1 hash code specific to this branch. */
-    private String branchID;
+    /** What HEAD_FILE holds before the name of the current branch. */
+    private static final String REF_PREFIX = "ref: refs/heads/";
 
-    /** The list of all files tracked by the head commit
-     * of this branch object. */
-    private List<String> tracked;
+    /** Client-specified name of the branch object. */
+    private final String name;
+
+    /** The ID of the latest commit made in this branch. */
+    private String headID;
+
+    /** The latest commit made in this branch, once it has been read. */
+    private Commit head;
 }
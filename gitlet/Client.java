@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** The thin client of the gitlet daemon. Usage: java gitlet.Client
+ * ARGS, with the same ARGS as gitlet.Main. The command is sent to the
+ * daemon serving the repository in the current directory, if one is
+ * running, and its output and exit status are passed on; otherwise the
+ * command is run right here, as gitlet.Main would run it. The client
+ * only touches the rest of gitlet in that case, so that talking to a
+ * daemon loads as few classes as possible.
+ * @author Ryan Van de Water
+ */
+public class Client {
+
+    /** Runs a command through the daemon if there is one.
+     * @param args - the command and its operands
+     */
+    public static void main(String... args) throws IOException {
+        int status = args.length == 0 ? -1 : send(args);
+        if (status < 0) {
+            Main.main(args);
+        } else {
+            System.exit(status);
+        }
+    }
+
+    /** Sends a command to the daemon, passing on its output. A command
+     * with no arguments at all only checks that the daemon is there.
+     * @param args - the command and its operands
+     * @return the status the command exited with, or -1 if no daemon
+     * is running
+     */
+    static int send(String[] args) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } catch (IOException | UnsupportedOperationException excp) {
+            return -1;
+        }
+        try (channel) {
+            try {
+                channel.connect(UnixDomainSocketAddress.of(Daemon.SOCKET));
+            } catch (IOException excp) {
+                return -1;
+            }
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            Channels.newOutputStream(channel)));
+            out.writeUTF(new File(".").getCanonicalPath());
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            DataInputStream in = new DataInputStream(
+                    Channels.newInputStream(channel));
+            byte[] buffer = new byte[0];
+            while (true) {
+                int stream = in.readByte();
+                int length = in.readInt();
+                if (stream == Daemon.EXIT) {
+                    System.out.flush();
+                    System.err.flush();
+                    return length;
+                }
+                if (buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                in.readFully(buffer, 0, length);
+                PrintStream dest = stream == Daemon.STDOUT ? System.out
+                    : System.err;
+                dest.write(buffer, 0, length);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** A compression scheme for the payload of stored objects. Every object
+ * file starts with a short header naming the codec its payload was
+ * written with, so objects written with different codecs, or at
+ * different levels, can live side by side in one repository.
+ * @author Ryan Van de Water
+ */
+interface Codec {
+
+    /** Getter method for the byte that identifies this codec in object
+     * headers.
+     * @return the codec's ID
+     */
+    byte getID();
+
+    /** Wraps a stream so that everything written to it is compressed.
+     * Closing the result finishes the compressed data and closes OUT.
+     * @param out - the stream receiving compressed bytes
+     * @return the stream to write uncompressed bytes to
+     * @throws IOException if the codec cannot start writing
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /** Wraps a stream so that reading from it decompresses.
+     * @param in - the stream of compressed bytes
+     * @return the stream of uncompressed bytes
+     * @throws IOException if the codec cannot start reading
+     */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /** Finds the codec an object was written with.
+     * @param id - the codec's ID from the object header
+     * @return the codec that can read the object
+     */
+    static Codec forID(byte id) {
+        if (id == StoredCodec.ID) {
+            return new StoredCodec();
+        } else if (id == DeflateCodec.ID) {
+            return new DeflateCodec(DeflateCodec.DEFAULT_LEVEL);
+        }
+        throw Utils.error("Unknown object codec %d.", id);
+    }
+
+    /** Finds the codec new objects should be written with, according to
+     * the core.compression and core.compressionLevel settings.
+     * @return the configured codec, deflate by default
+     */
+    static Codec configured() {
+        String name = Config.get("core.compression", "deflate");
+        switch (name) {
+        case "none":
+            return new StoredCodec();
+        case "deflate":
+            return new DeflateCodec(Config.getInt("core.compressionLevel",
+                    DeflateCodec.DEFAULT_LEVEL));
+        default:
+            throw Utils.error("Unknown compression %s.", name);
+        }
+    }
+}
@@ -1,128 +1,129 @@
 package gitlet;
 
 
-import java.io.Serializable;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 /** Represents a Commit object or "snapshot" of files
- * at specific points in time.
+ * at specific points in time. A commit only refers to its tree and
+ * parents by ID; they are read from the object store when asked for.
  * @author Ryan Van de Water
  */
-public class Commit implements Serializable {
+public class Commit {
 
     /** Initializes a commit with the given parameters as instance variables.
-     * @param time - the time at which the commit was made
+     * @param time - the time at which the commit was made, in
+     *             milliseconds since the epoch
      * @param msg - client-specified message
-     * @param track - a hashmap composing for file names and their
-     *              associated blobs
-     * @param father - the parent commit or commit that was
-     *              made prior to this one
+     * @param treeID - the ID of the tree of files this commit tracks
+     * @param parentIDs - the IDs of the commits made prior to this
+     *                  one, first parent first
      */
-    public Commit(String time, String msg, HashMap<String,
-            Blob> track, Commit father) {
+    public Commit(long time, String msg, String treeID,
+                  List<String> parentIDs) {
         timestamp = time;
         message = msg;
-        tracking = track;
-        parent = father;
-        List<Object> sha1Passed = new ArrayList<>();
-        sha1Passed.add(Utils.serialize(timestamp));
-        sha1Passed.add(Utils.serialize(message));
-        sha1Passed.add(Utils.serialize(tracking));
-        sha1Passed.add(Utils.serialize(parent));
-        commitID = Utils.sha1(sha1Passed);
-    }
-
-    /** Makes a shallow copy of the inputted commit.
-     * @param c - the commit to be copied
-     */
-    public void copyFrom(Commit c) {
-        timestamp = c.getTimeStamp();
-        message = c.getMessage();
-        tracking = c.getTracking();
-        parent = c.getParent();
-        commitID = c.getID();
-    }
-
-    /** Setter method for the ID of the Commit.
-     * @param time - the date at which the Commit was made
-     * @param msg - the message attached to the Commit
-     * @param track - A HashMap of file names to their
-     * respective Blob objects
-     * @param par - the Commit that was made prior to this Commit
-     */
-    void setCommitID(String time, String msg,
-                     HashMap<String, Blob> track, Commit par) {
-        List<Object> sha1Passed = new ArrayList<>();
-        sha1Passed.add(Utils.serialize(time));
-        sha1Passed.add(Utils.serialize(msg));
-        sha1Passed.add(Utils.serialize(track));
-        sha1Passed.add(Utils.serialize(par));
-        this.commitID = Utils.sha1(sha1Passed);
-    }
-
-    /** Allows you to update the Tracking instance variable with a new
-     * file essentially.
-     * @param str - The file name
-     * @param blobby - The respective Blob object for the added file
-     */
-    void updateTracking(String str, Blob blobby) {
-        if (tracking == null) {
-            tracking = new HashMap<>();
-            tracking.put(str, blobby);
-        } else {
-            if (!tracking.containsKey(str)) {
-                tracking.put(str, blobby);
-            } else {
-                Blob beforeBlob = tracking.get(str);
-                int diff = blobby.getContents().compareTo
-                        (beforeBlob.getContents());
-                if (diff != 0) {
-                    tracking.put(str, blobby);
-                }
-            }
+        tree = treeID;
+        parents = new ArrayList<>(parentIDs);
+        generation = 1;
+        CommitGraph graph = parents.isEmpty() ? null : CommitGraph.get();
+        for (String parent : parents) {
+            generation = Math.max(generation,
+                    graph.getGeneration(graph.require(parent)) + 1);
         }
+        commitID = Utils.sha1(header());
     }
 
-    /** Setter method for the timeStamp variable.
-     * @param time - formatted date
+    /** An empty commit, for decode to fill in. */
+    private Commit() {
+    }
+
+    /** Builds the canonical header this commit's ID is the hash of. It
+     * only names the tree and parents by ID, so its size does not
+     * depend on how much history lies behind the commit.
+     * @return the tree ID, parent IDs, timestamp and message, one
+     * field per line
      */
-    void setTimestamp(String time) {
-        this.timestamp = time;
+    String header() {
+        StringBuilder result = new StringBuilder();
+        result.append("tree ").append(tree).append('\n');
+        for (String parent : parents) {
+            result.append("parent ").append(parent).append('\n');
+        }
+        result.append("time ").append(timestamp).append('\n');
+        result.append('\n').append(message);
+        return result.toString();
     }
 
-    /** Setter method for the message variable.
-     * @param msg - Client-specific chosen string
+    /** Loads the commit with the given ID from the object store.
+     * @param id - sha-1 hash code of the commit
+     * @return the stored commit
      */
-    void setMessage(String msg) {
-        this.message = msg;
+    static Commit read(String id) {
+        return ObjectStore.read(ObjectStore.COMMITS, id, Commit.class,
+            in -> decode(in, id));
     }
 
-    /** Setter method for the parent of a Commit.
-     * @param c - Commit object
+    /** Writes this commit into the object store. */
+    void save() {
+        ObjectStore.write(ObjectStore.COMMITS, commitID,
+                encode(Encoder.get()));
+    }
+
+    /** Writes this commit in the binary format: the version, the tree
+     * ID, the number of parents and their IDs, the timestamp, the
+     * generation and the message. The commit's own ID is not written,
+     * as it is the name the commit is stored under.
+     * @param out - where to write it
+     * @return OUT
      */
-    void setParent(Commit c) {
-        this.parent = c;
+    Encoder encode(Encoder out) {
+        out.writeByte(FORMAT).writeID(tree).writeVarint(parents.size());
+        for (String parent : parents) {
+            out.writeID(parent);
+        }
+        return out.writeVarint(timestamp).writeVarint(generation)
+            .writeString(message);
     }
 
-    /** Setter method for the tracking instance variable.
-     * @param hashy - represents a file
+    /** Reads a commit written by encode.
+     * @param in - the encoded commit
+     * @param id - the ID it is stored under
+     * @return the commit
      */
-    void setTracking(HashMap<String, Blob> hashy) throws ClassCastException {
-        if (hashy == null) {
-            tracking = null;
-        } else {
-            HashMap<String, Blob> newInput;
-            newInput = (HashMap<String, Blob>) hashy.clone();
-            tracking = newInput;
+    static Commit decode(Decoder in, String id) {
+        int format = in.readByte();
+        if (format != FORMAT) {
+            throw Utils.error("Unrecognized commit format %d.", format);
         }
+        Commit result = new Commit();
+        result.tree = in.readID();
+        int n = in.readInt();
+        result.parents = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            result.parents.add(in.readID());
+        }
+        result.timestamp = in.readVarint();
+        result.generation = in.readInt();
+        result.message = in.readString();
+        result.commitID = id;
+        return result;
     }
 
-    /** Getter method for the timeStamp instance variable.
+    /** Formats the timestamp instance variable for the log.
      * @return formatted Date object
      */
     String getTimeStamp() {
+        return LogFormat.FORMATTER.format(new Date(timestamp));
+    }
+
+    /** Getter method for the timestamp instance variable.
+     * @return milliseconds since the epoch at which the commit was made
+     */
+    long getTime() {
         return timestamp;
     }
 
@@ -133,19 +134,34 @@ public class Commit implements Serializable {
         return message;
     }
 
-    /** Getter method for the tracking instance variable.
-     * @return HashMap(String, Blob) for the Commit object
-     * which ultimately represents the files it is tracking
+    /** Getter method for the tree of the top directory, which is read
+     * from the object store, or the ObjectCache, when it is needed.
+     * @return the tree this commit tracks
+     */
+    Tree getTree() {
+        return Tree.read(tree);
+    }
+
+    /** Getter method for the tree instance variable.
+     * @return the ID of the tree this commit tracks
      */
-    HashMap<String, Blob> getTracking() {
-        return tracking;
+    String getTreeID() {
+        return tree;
     }
 
-    /** Getter method for the parent instance variable.
-     * @return prior commit made relative to this Commit object
+    /** Getter method for the parents instance variable.
+     * @return the IDs of the commits made prior to this one
      */
-    Commit getParent() {
-        return parent;
+    List<String> getParentIDs() {
+        return Collections.unmodifiableList(parents);
+    }
+
+    /** Getter method for the generation instance variable.
+     * @return one more than the largest generation number among this
+     * commit's parents, or 1 for the initial commit
+     */
+    int getGeneration() {
+        return generation;
     }
 
     /** Getter method for the ID instance variable.
@@ -155,17 +171,34 @@ public class Commit implements Serializable {
         return commitID;
     }
 
-    /** Denotes when the commit was made. */
-    protected String timestamp;
+    /** Holds the date format of the log, which is slow to build, so that
+     * only the commands that print dates ever build it. */
+    private static class LogFormat {
+        /** The date format that is to be used in the log. */
+        static final SimpleDateFormat FORMATTER = new SimpleDateFormat(
+                "EEE MMM dd HH:mm:ss yyyy Z");
+    }
+
+    /** The version of the binary format of commits. */
+    private static final int FORMAT = 1;
+
+    /** Denotes when the commit was made, in milliseconds since
+     * the epoch. */
+    protected long timestamp;
 
     /** Denotes the client-specified message associated with the commit. */
     protected String message;
 
-    /** Denotes the files that the commit is tracking changes of. */
-    protected HashMap<String, Blob> tracking;
+    /** Denotes the ID of the tree of files the commit tracks. */
+    protected String tree;
+
+    /** Denotes the IDs of the commits prior to this commit. */
+    protected ArrayList<String> parents;
 
-    /** Denotes the commit prior to this commit. */
-    protected Commit parent;
+    /** Denotes the length of the longest path from this commit back to
+     * the initial commit, counting both. A commit's generation is
+     * always larger than those of all of its ancestors. */
+    protected int generation;
 
     /** Denotes the sha-1 hash code specific to this commit. */
     protected String commitID;
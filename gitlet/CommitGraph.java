@@ -0,0 +1,251 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/** A compact binary file describing the shape of the commit history,
+ * so that walking ancestry never has to deserialize Commit objects.
+ * After a small header, the file holds one fixed-width record per
+ * commit, in the order the commits were made:
+ *
+ *     commit ID      20 bytes
+ *     tree ID        20 bytes
+ *     first parent    4 bytes (position of its record, or -1)
+ *     second parent   4 bytes (position of its record, or -1)
+ *     generation      4 bytes
+ *     timestamp       8 bytes (milliseconds since the epoch)
+ *
+ * Since a commit is always recorded after its parents, a new commit
+ * is simply appended. The file is read through a memory map, so
+ * looking at a record costs no more than an array access, and the
+ * CommitIndex finds the record of a commit ID by binary search, or
+ * among the last few records if it has not been indexed yet.
+ * @author Ryan Van de Water
+ */
+class CommitGraph {
+
+    /** Returns the commit graph of the repository, mapping it into
+     * memory the first time it is asked for.
+     * @return the commit graph
+     */
+    static CommitGraph get() {
+        if (instance == null) {
+            instance = new CommitGraph(GRAPH_FILE);
+        }
+        return instance;
+    }
+
+    /** Forgets the commit graph read so far, so that the next get() reads it
+     * again, as it stands on disk now. */
+    static void forget() {
+        instance = null;
+    }
+
+    /** Creates an empty commit graph file, and the index of its
+     * commit IDs, for a new repository. */
+    static void create() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION);
+        Utils.writeContents(GRAPH_FILE, header.array());
+        CommitIndex.create();
+        instance = null;
+    }
+
+    /** Maps the graph stored in the given file.
+     * @param file - the commit graph file
+     */
+    private CommitGraph(File file) {
+        graphFile = file;
+        remap();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw Utils.error("Unrecognized commit graph %s.", file);
+        }
+    }
+
+    /** Records a new commit at the end of the graph. Its parents must
+     * already be in the graph.
+     * @param c - the commit to add
+     */
+    void append(Commit c) {
+        if (position(c.getID()) >= 0) {
+            return;
+        }
+        List<String> parents = c.getParentIDs();
+        if (parents.size() > 2) {
+            throw Utils.error("Commit %s has more than two parents.",
+                    c.getID());
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(Utils.fromHex(c.getID()));
+        record.put(Utils.fromHex(c.getTreeID()));
+        for (int i = 0; i < 2; i += 1) {
+            record.putInt(i < parents.size() ? require(parents.get(i)) : -1);
+        }
+        record.putInt(c.getGeneration());
+        record.putLong(c.getTime());
+        record.flip();
+        try (FileChannel channel = FileChannel.open(graphFile.toPath(),
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        remap();
+        CommitIndex.get().added(this);
+    }
+
+    /** Getter method for the number of commits in the graph.
+     * @return the number of records
+     */
+    int size() {
+        return count;
+    }
+
+    /** Looks up where a commit is recorded.
+     * @param id - the full ID of the commit
+     * @return the position of its record, or -1 if it is not in the
+     * graph
+     */
+    int position(String id) {
+        return CommitIndex.get().find(id);
+    }
+
+    /** Looks up where a commit that must exist is recorded.
+     * @param id - the full ID of the commit
+     * @return the position of its record
+     */
+    int require(String id) {
+        int pos = position(id);
+        if (pos < 0) {
+            throw Utils.error("Commit %s is missing from the commit graph.",
+                    id);
+        }
+        return pos;
+    }
+
+    /** Getter method for the ID of a recorded commit.
+     * @param pos - the position of the commit's record
+     * @return the full ID of the commit
+     */
+    String getID(int pos) {
+        return readID(pos, 0, new byte[ID_SIZE]);
+    }
+
+    /** Checks whether the ID of a recorded commit starts with the given
+     * digits.
+     * @param pos - the position of the commit's record
+     * @param key - a full or abbreviated ID
+     * @return whether or not the commit's ID matches
+     */
+    boolean matches(int pos, String key) {
+        return CommitIndex.compare(buffer, offset(pos), key) == 0;
+    }
+
+    /** Getter method for the tree of a recorded commit.
+     * @param pos - the position of the commit's record
+     * @return the ID of the tree the commit tracks
+     */
+    String getTree(int pos) {
+        return readID(pos, ID_SIZE, new byte[ID_SIZE]);
+    }
+
+    /** Getter method for a parent of a recorded commit.
+     * @param pos - the position of the commit's record
+     * @param which - 0 for the first parent, 1 for the second
+     * @return the position of the parent's record, or -1 if the commit
+     * has no such parent
+     */
+    int getParent(int pos, int which) {
+        return buffer.getInt(offset(pos) + 2 * ID_SIZE + 4 * which);
+    }
+
+    /** Getter method for the generation number of a recorded commit.
+     * @param pos - the position of the commit's record
+     * @return the commit's generation number
+     */
+    int getGeneration(int pos) {
+        return buffer.getInt(offset(pos) + 2 * ID_SIZE + 8);
+    }
+
+    /** Getter method for the timestamp of a recorded commit.
+     * @param pos - the position of the commit's record
+     * @return milliseconds since the epoch at which the commit was made
+     */
+    long getTime(int pos) {
+        return buffer.getLong(offset(pos) + 2 * ID_SIZE + 12);
+    }
+
+    /** Reads one of the IDs in a record.
+     * @param pos - the position of the record
+     * @param field - the offset of the ID within the record
+     * @param raw - a scratch array of ID_SIZE bytes
+     * @return the ID as a hexadecimal string
+     */
+    private String readID(int pos, int field, byte[] raw) {
+        for (int i = 0; i < ID_SIZE; i += 1) {
+            raw[i] = buffer.get(offset(pos) + field + i);
+        }
+        return Utils.toHex(raw, 0, ID_SIZE);
+    }
+
+    /** Computes where a record starts in the file.
+     * @param pos - the position of the record
+     * @return the byte offset of the record
+     */
+    private int offset(int pos) {
+        if (pos < 0 || pos >= count) {
+            throw new IndexOutOfBoundsException("no commit at " + pos);
+        }
+        return HEADER_SIZE + pos * RECORD_SIZE;
+    }
+
+    /** Maps the whole graph file into memory again after it grew. */
+    private void remap() {
+        try (FileChannel channel = FileChannel.open(graphFile.toPath(),
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            count = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The commit graph of the repository, once it has been mapped. */
+    private static CommitGraph instance;
+
+    /** The commit graph file of the repository. */
+    static final File GRAPH_FILE = Utils.join(ObjectStore.OBJECTS_DIR,
+            "commit-graph");
+
+    /** Identifies a commit graph file: "CGPH". */
+    private static final int MAGIC = 0x43475048;
+
+    /** The version of the record layout. */
+    private static final int VERSION = 1;
+
+    /** The size of the file header in bytes. */
+    private static final int HEADER_SIZE = 8;
+
+    /** The size of a raw sha-1 ID in bytes. */
+    static final int ID_SIZE = Utils.UID_LENGTH / 2;
+
+    /** The size of one commit record in bytes. */
+    static final int RECORD_SIZE = 2 * ID_SIZE + 4 + 4 + 4 + 8;
+
+    /** The file this graph was read from. */
+    private final File graphFile;
+
+    /** The memory-mapped contents of the graph file. */
+    private MappedByteBuffer buffer;
+
+    /** The number of commits in the graph. */
+    private int count;
+}
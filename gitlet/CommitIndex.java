@@ -0,0 +1,369 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A sorted index of commit IDs, laid out like the index of a git
+ * pack so that full and abbreviated IDs are found by binary search
+ * instead of by listing the commits folder. After a small header the
+ * file holds a fan-out table of 256 counts, where entry B is the number
+ * of IDs whose first byte is at most B, followed by one entry per
+ * commit in ID order:
+ *
+ *     commit ID      20 bytes
+ *     graph position  4 bytes (where the commit's record is in the
+ *                              commit graph)
+ *
+ * The fan-out table narrows every search to the IDs sharing a first
+ * byte before the binary search starts, so a lookup costs O(log N).
+ * The entries cover the first size() records of the commit graph.
+ * The records after them form an unsorted tail: a new commit is only
+ * appended to the graph, and lookups scan the tail after searching the
+ * entries. Once the tail grows past TAIL_LIMIT commits, or when the
+ * repository is repacked, it is folded into the entries by rewriting
+ * the file, so the rewrite is paid once every TAIL_LIMIT commits
+ * rather than on every commit, and the tail never holds more than
+ * TAIL_LIMIT records to scan.
+ * @author Ryan Van de Water
+ */
+class CommitIndex {
+
+    /** Returns the commit index of the repository, mapping it into
+     * memory the first time it is asked for.
+     * @return the commit index
+     */
+    static CommitIndex get() {
+        if (instance == null) {
+            instance = new CommitIndex(INDEX_FILE);
+        }
+        return instance;
+    }
+
+    /** Forgets the commit index read so far, so that the next get() reads it
+     * again, as it stands on disk now. */
+    static void forget() {
+        instance = null;
+    }
+
+    /** Creates an empty commit index file for a new repository. */
+    static void create() {
+        ByteBuffer empty = ByteBuffer.allocate(ENTRIES_START);
+        empty.putInt(MAGIC).putInt(VERSION);
+        Utils.writeContents(INDEX_FILE, empty.array());
+        Transaction.wrote(INDEX_FILE);
+        instance = null;
+    }
+
+    /** Writes the index of every commit in a graph from scratch, which
+     * folds in the tail, and is also how Transaction.recover mends an
+     * index that covers records the graph was cut back past.
+     * @param graph - the commit graph
+     */
+    static void rebuild(CommitGraph graph) {
+        int n = graph.size();
+        ObjectId[] ids = new ObjectId[n];
+        Map<ObjectId, Integer> positions = new HashMap<>();
+        for (int pos = 0; pos < n; pos += 1) {
+            ids[pos] = ObjectId.fromHex(graph.getID(pos));
+            positions.put(ids[pos], pos);
+        }
+        Arrays.sort(ids);
+        ByteBuffer buf = ByteBuffer.allocate(ENTRIES_START
+                + n * ENTRY_SIZE);
+        buf.putInt(MAGIC).putInt(VERSION);
+        int i = 0;
+        for (int b = 0; b < FANOUT; b += 1) {
+            while (i < n && ids[i].firstByte() <= b) {
+                i += 1;
+            }
+            buf.putInt(i);
+        }
+        for (ObjectId id : ids) {
+            id.writeTo(buf).putInt(positions.get(id));
+        }
+        buf.flip();
+        write(INDEX_FILE, buf);
+        instance = null;
+    }
+
+    /** Maps the index stored in the given file.
+     * @param file - the commit index file
+     */
+    private CommitIndex(File file) {
+        indexFile = file;
+        remap();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw Utils.error("Unrecognized commit index %s.", file);
+        }
+    }
+
+    /** Getter method for the number of commits in the sorted entries,
+     * which are the first that many records of the commit graph.
+     * @return the number of entries
+     */
+    int size() {
+        return count;
+    }
+
+    /** Looks up a commit by its full ID.
+     * @param id - the full ID of the commit
+     * @return the position of the commit in the commit graph, or -1 if
+     * it is in neither the entries nor the tail
+     */
+    int find(String id) {
+        if (id.length() != Utils.UID_LENGTH) {
+            return -1;
+        }
+        int i = lowerBound(id);
+        if (i < count && matches(i, id)) {
+            return buffer.getInt(entry(i) + ID_SIZE);
+        }
+        CommitGraph graph = CommitGraph.get();
+        for (int pos = count; pos < graph.size(); pos += 1) {
+            if (graph.matches(pos, id)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /** Expands an abbreviated commit ID.
+     * @param prefix - the first few hexadecimal digits of an ID
+     * @return the full ID of the only commit starting with PREFIX, or
+     * null if there is none
+     * @throws GitletException if more than one commit starts with PREFIX
+     */
+    String resolve(String prefix) {
+        if (prefix.isEmpty() || prefix.length() > Utils.UID_LENGTH
+                || !prefix.matches("[0-9a-fA-F]+")) {
+            return null;
+        }
+        prefix = prefix.toLowerCase();
+        String result = null;
+        int i = lowerBound(prefix);
+        if (i < count && matches(i, prefix)) {
+            if (i + 1 < count && matches(i + 1, prefix)) {
+                throw Utils.error("Commit ID prefix %s is ambiguous.",
+                        prefix);
+            }
+            result = idAt(i);
+        }
+        CommitGraph graph = CommitGraph.get();
+        for (int pos = count; pos < graph.size(); pos += 1) {
+            if (graph.matches(pos, prefix)) {
+                if (result != null) {
+                    throw Utils.error("Commit ID prefix %s is ambiguous.",
+                            prefix);
+                }
+                result = graph.getID(pos);
+            }
+        }
+        return result;
+    }
+
+    /** Takes in a commit just appended to a graph. It stays in the tail
+     * until the tail outgrows TAIL_LIMIT, when the tail is folded in.
+     * @param graph - the commit graph, already holding the commit
+     */
+    void added(CommitGraph graph) {
+        if (graph.size() - count > TAIL_LIMIT) {
+            rebuild(graph);
+        }
+    }
+
+    /** Folds the tail, if there is one, into the sorted entries. */
+    void fold() {
+        CommitGraph graph = CommitGraph.get();
+        if (graph.size() > count) {
+            rebuild(graph);
+        }
+    }
+
+    /** Replaces an index file, writing the new contents to a temporary
+     * file and renaming it into place. The MessageIndex replaces its
+     * table this way too.
+     * @param file - the index file
+     * @param parts - the new contents, in order
+     */
+    static void write(File file, ByteBuffer... parts) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer part : parts) {
+                while (part.hasRemaining()) {
+                    channel.write(part);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Transaction.wrote(file);
+    }
+
+    /** Finds the first entry whose ID is not less than KEY, comparing
+     * only as many digits as KEY has.
+     * @param key - a full or abbreviated ID
+     * @return the index of that entry, or size() if there is none
+     */
+    private int lowerBound(String key) {
+        int high = Character.digit(key.charAt(0), 16);
+        int lo;
+        int hi;
+        if (key.length() == 1) {
+            lo = high == 0 ? 0 : fanout(high * 16 - 1);
+            hi = fanout(high * 16 + 15);
+        } else {
+            int first = high * 16 + Character.digit(key.charAt(1), 16);
+            lo = first == 0 ? 0 : fanout(first - 1);
+            hi = fanout(first);
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Compares the ID of an entry with a full or abbreviated ID, one
+     * hexadecimal digit at a time.
+     * @param i - the index of the entry
+     * @param key - the ID to compare with
+     * @return a negative, zero or positive number as the first
+     * key.length() digits of the entry's ID are less than, equal to
+     * or greater than KEY
+     */
+    private int compare(int i, String key) {
+        return compare(buffer, entry(i), key);
+    }
+
+    /** Compares a raw ID with a full or abbreviated ID, one hexadecimal
+     * digit at a time.
+     * @param buf - the buffer holding the raw ID
+     * @param start - where the raw ID starts in BUF
+     * @param key - the ID to compare with
+     * @return a negative, zero or positive number as the first
+     * key.length() digits of the raw ID are less than, equal to or
+     * greater than KEY
+     */
+    static int compare(ByteBuffer buf, int start, String key) {
+        for (int d = 0; d < key.length(); d += 1) {
+            int b = buf.get(start + d / 2) & 0xff;
+            int digit = d % 2 == 0 ? b >> 4 : b & 0xf;
+            int diff = digit - Character.digit(key.charAt(d), 16);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return 0;
+    }
+
+    /** Checks whether an entry's ID starts with the given digits.
+     * @param i - the index of the entry
+     * @param key - a full or abbreviated ID
+     * @return whether or not the entry matches
+     */
+    private boolean matches(int i, String key) {
+        return compare(i, key) == 0;
+    }
+
+    /** Getter method for the ID of an entry.
+     * @param i - the index of the entry
+     * @return the full ID
+     */
+    private String idAt(int i) {
+        byte[] raw = new byte[ID_SIZE];
+        for (int k = 0; k < ID_SIZE; k += 1) {
+            raw[k] = buffer.get(entry(i) + k);
+        }
+        return Utils.toHex(raw, 0, ID_SIZE);
+    }
+
+    /** Reads the fan-out table.
+     * @param b - a first byte of an ID
+     * @return the number of IDs whose first byte is at most B
+     */
+    private int fanout(int b) {
+        return buffer.getInt(HEADER_SIZE + 4 * b);
+    }
+
+    /** Computes where an entry starts in the file.
+     * @param i - the index of the entry
+     * @return the byte offset of the entry
+     */
+    private int entry(int i) {
+        return ENTRIES_START + i * ENTRY_SIZE;
+    }
+
+    /** Maps the whole index file into memory again after it changed. */
+    private void remap() {
+        try (FileChannel channel = FileChannel.open(indexFile.toPath(),
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            count = (int) ((channel.size() - ENTRIES_START) / ENTRY_SIZE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The commit index of the repository, once it has been mapped. */
+    private static CommitIndex instance;
+
+    /** The commit index file of the repository. */
+    static final File INDEX_FILE = Utils.join(ObjectStore.OBJECTS_DIR,
+            "commit-graph.idx");
+
+    /** Identifies a commit index file: "CIDX". */
+    private static final int MAGIC = 0x43494458;
+
+    /** The version of the index layout. */
+    private static final int VERSION = 1;
+
+    /** The size of the file header in bytes. */
+    private static final int HEADER_SIZE = 8;
+
+    /** The number of entries in the fan-out table. */
+    private static final int FANOUT = 256;
+
+    /** Where the first entry starts in the file. */
+    private static final int ENTRIES_START = HEADER_SIZE + 4 * FANOUT;
+
+    /** The size of a raw sha-1 ID in bytes. */
+    private static final int ID_SIZE = CommitGraph.ID_SIZE;
+
+    /** The size of one entry in bytes. */
+    private static final int ENTRY_SIZE = ID_SIZE + 4;
+
+    /** The most commits the tail holds before it is folded in. */
+    static final int TAIL_LIMIT = 256;
+
+    /** The file this index was read from. */
+    private final File indexFile;
+
+    /** The memory-mapped contents of the index file. */
+    private MappedByteBuffer buffer;
+
+    /** The number of commits in the sorted entries. */
+    private int count;
+}
@@ -0,0 +1,94 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/** Repository settings. A setting is looked up first among the system
+ * properties, as gitlet.KEY (so java -Dgitlet.KEY=VALUE gitlet.Main ...
+ * overrides it for one command), and then in the .gitlet/config file,
+ * which uses the java.util.Properties format:
+ *
+ *     core.compression = deflate
+ *     core.compressionLevel = 9
+ *
+ * @author Ryan Van de Water
+ */
+class Config {
+
+    /** Looks up a setting.
+     * @param key - the name of the setting
+     * @param fallback - the value to use if the setting is absent
+     * @return the value of the setting
+     */
+    static String get(String key, String fallback) {
+        String value = System.getProperty("gitlet." + key);
+        if (value == null) {
+            value = settings().getProperty(key);
+        }
+        return value == null ? fallback : value.trim();
+    }
+
+    /** Looks up a true or false setting.
+     * @param key - the name of the setting
+     * @param fallback - the value to use if the setting is absent
+     * @return the value of the setting
+     */
+    static boolean getBoolean(String key, boolean fallback) {
+        String value = get(key, null);
+        if (value == null) {
+            return fallback;
+        } else if (value.equals("true") || value.equals("false")) {
+            return value.equals("true");
+        }
+        throw Utils.error("Setting %s must be true or false.", key);
+    }
+
+    /** Looks up a numeric setting.
+     * @param key - the name of the setting
+     * @param fallback - the value to use if the setting is absent
+     * @return the value of the setting
+     */
+    static int getInt(String key, int fallback) {
+        String value = get(key, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException excp) {
+            throw Utils.error("Setting %s must be a number.", key);
+        }
+    }
+
+    /** Forgets the settings read from the config file so far, so that
+     * the next lookup reads it again. */
+    static void forget() {
+        fileSettings = null;
+    }
+
+    /** Reads the config file the first time a setting is looked up.
+     * @return the settings in the config file
+     */
+    private static Properties settings() {
+        if (fileSettings == null) {
+            fileSettings = new Properties();
+            if (CONFIG_FILE.isFile()) {
+                try (InputStream in = new FileInputStream(CONFIG_FILE)) {
+                    fileSettings.load(in);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            }
+        }
+        return fileSettings;
+    }
+
+    /** The config file of the repository. */
+    static final File CONFIG_FILE = Utils.join(".gitlet", "config");
+
+    /** The settings in the config file, once they have been read. */
+    private static Properties fileSettings;
+}
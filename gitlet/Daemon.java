@@ -0,0 +1,242 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** A long-lived gitlet process for one repository, which runs the
+ * commands sent to it by Client over a Unix-domain socket in the
+ * .gitlet folder. It saves every command the start-up of a Java
+ * runtime and keeps the index, commit graph, commit index, config and
+ * packs it has read in memory from one command to the next.
+ *
+ * Commands are run one at a time, in the daemon's own working
+ * directory, which must be the one the client runs in. Before each
+ * command the daemon compares the stat data of the files behind those
+ * caches with what they were when its last command finished, and
+ * forgets them all if any was changed from outside, so a command run
+ * without the daemon never leaves it with a stale view. A command that
+ * fails also makes it forget them, as it may have left them half
+ * changed. The ObjectCache is kept through all of this, since objects
+ * never change once written, so commands keep reading the commits,
+ * trees and blobs of the commands before them from memory.
+ *
+ * A request is the client's working directory and the command's
+ * arguments; the reply is a sequence of frames, each a channel byte and
+ * a length, carrying the command's standard output and standard error,
+ * ending with the status the command exits with.
+ * @author Ryan Van de Water
+ */
+class Daemon {
+
+    /** Serves commands until told to stop. */
+    static void serve() {
+        Path socket = new File(SOCKET).toPath();
+        if (Client.send(new String[0]) >= 0) {
+            throw Utils.error("A daemon is already running.");
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open(
+                StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(socket);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    new File(SOCKET).delete()));
+            Daemon daemon = new Daemon();
+            System.out.printf("Serving %s.%n", daemon.root);
+            boolean serving = true;
+            while (serving) {
+                try (SocketChannel client = server.accept()) {
+                    serving = daemon.handle(client);
+                } catch (IOException excp) {
+                    System.err.println(excp.getMessage());
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            new File(SOCKET).delete();
+        }
+    }
+
+    /** Starts a daemon in the current directory. */
+    private Daemon() throws IOException {
+        root = new File(".").getCanonicalPath();
+        state = fingerprint();
+    }
+
+    /** Runs one command for a client.
+     * @param client - the connection to the client
+     * @return whether or not to go on serving commands
+     */
+    private boolean handle(SocketChannel client) throws IOException {
+        DataInputStream in = new DataInputStream(
+                Channels.newInputStream(client));
+        String cwd = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = in.readUTF();
+        }
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(client), BUFFER_SIZE));
+        if (args.length == 0) {
+            out.writeByte(EXIT);
+            out.writeInt(0);
+            out.flush();
+            return true;
+        }
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        System.setOut(new PrintStream(new BufferedOutputStream(
+                new Frames(out, STDOUT), BUFFER_SIZE), false));
+        System.setErr(new PrintStream(new BufferedOutputStream(
+                new Frames(out, STDERR), BUFFER_SIZE), false));
+        int status = 0;
+        boolean serving = true;
+        try {
+            if (!cwd.equals(root)) {
+                throw Utils.error("The daemon serves %s.", root);
+            } else if (args[0].equals("daemon")) {
+                if (args.length != 2 || !args[1].equals("--stop")) {
+                    throw Utils.error("A daemon is already running.");
+                }
+                System.out.println("Daemon stopped.");
+                serving = false;
+            } else {
+                if (!fingerprint().equals(state)) {
+                    forget();
+                }
+                Main.run(args);
+            }
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+            forget();
+        } catch (IOException | RuntimeException excp) {
+            System.out.println(excp.getMessage() == null ? excp.toString()
+                    : excp.getMessage());
+            // Not getBoolean, which would throw again on a bad setting.
+            if (Config.get("core.verbose", "false").equals("true")) {
+                excp.printStackTrace();
+            }
+            status = 1;
+            forget();
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+            state = fingerprint();
+        }
+        out.writeByte(EXIT);
+        out.writeInt(status);
+        out.flush();
+        return serving;
+    }
+
+    /** Forgets everything read from the repository so far. */
+    private static void forget() {
+        Index.forget();
+        CommitGraph.forget();
+        CommitIndex.forget();
+        Config.forget();
+        ObjectStore.rescan();
+    }
+
+    /** Takes the stat data of the files behind the caches that forget()
+     * clears: their modification times, sizes and inodes, the last of
+     * which changes whenever a file is replaced by a rename.
+     * @return the stat data of each file, or "absent" for a missing one
+     */
+    private static List<String> fingerprint() {
+        List<String> result = new ArrayList<>();
+        for (File f : WATCHED) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(f.toPath(),
+                        BasicFileAttributes.class);
+                result.add(attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                        + " " + attrs.size() + " " + attrs.fileKey());
+            } catch (NoSuchFileException excp) {
+                result.add("absent");
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /** Sends everything written to it to the client as frames on one
+     * channel. */
+    private static class Frames extends OutputStream {
+
+        /** Frames on CHANNEL, written to OUT.
+         * @param out - the connection to the client
+         * @param channel - STDOUT or STDERR
+         */
+        Frames(DataOutputStream out, int channel) {
+            this.out = out;
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (out) {
+                out.writeByte(channel);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        /** The connection to the client. */
+        private final DataOutputStream out;
+
+        /** The channel the frames are on. */
+        private final int channel;
+    }
+
+    /** The socket the daemon listens on. */
+    static final String SOCKET = ".gitlet/daemon.sock";
+
+    /** The channel of frames of standard output. */
+    static final int STDOUT = 1;
+
+    /** The channel of frames of standard error. */
+    static final int STDERR = 2;
+
+    /** The channel of the frame ending a reply. */
+    static final int EXIT = 0;
+
+    /** The size of the buffer frames are written through. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The files whose changes make the daemon forget its caches. */
+    private static final File[] WATCHED = {
+        Index.INDEX_FILE, CommitGraph.GRAPH_FILE, CommitIndex.INDEX_FILE,
+        Config.CONFIG_FILE, Pack.PACK_DIR,
+    };
+
+    /** The canonical path of the working directory served. */
+    private final String root;
+
+    /** The stat data of the watched files after the last command. */
+    private List<String> state;
+}
@@ -0,0 +1,147 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Reads back what an Encoder wrote, front to back.
+ *
+ * Objects read from the object store are decoded from a buffer that
+ * each thread reuses, so a decoder from fill() is only good until the
+ * next call to fill() on the same thread.
+ * @author Ryan Van de Water
+ */
+class Decoder {
+
+    /** A decoder of a whole array.
+     * @param data - the encoded bytes
+     */
+    Decoder(byte[] data) {
+        this(data, data.length);
+    }
+
+    /** A decoder of the start of an array.
+     * @param data - the encoded bytes
+     * @param length - how many of them there are
+     */
+    private Decoder(byte[] data, int length) {
+        this.data = data;
+        this.length = length;
+    }
+
+    /** Reads all of a stream into this thread's buffer.
+     * @param in - the stream, which is read to its end but not closed
+     * @return a decoder of everything read
+     */
+    static Decoder fill(InputStream in) throws IOException {
+        byte[] buffer = BUFFER.get();
+        int n = 0;
+        while (true) {
+            if (n == buffer.length) {
+                byte[] bigger = new byte[2 * buffer.length];
+                System.arraycopy(buffer, 0, bigger, 0, n);
+                buffer = bigger;
+            }
+            int read = in.read(buffer, n, buffer.length - n);
+            if (read < 0) {
+                break;
+            }
+            n += read;
+        }
+        BUFFER.set(buffer.length > MAX_KEPT ? new byte[INITIAL_SIZE]
+                : buffer);
+        return new Decoder(buffer, n);
+    }
+
+    /** Getter method for the number of encoded bytes.
+     * @return the size of the encoding
+     */
+    int size() {
+        return length;
+    }
+
+    /** Reads one byte.
+     * @return the byte, from 0 to 255
+     */
+    int readByte() {
+        need(1);
+        return data[pos++] & 0xff;
+    }
+
+    /** Reads a number written by Encoder.writeVarint.
+     * @return the number
+     */
+    long readVarint() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            need(1);
+            b = data[pos++];
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /** Reads a number written by Encoder.writeVarint that fits in an
+     * int, such as a count or a length.
+     * @return the number
+     */
+    int readInt() {
+        long value = readVarint();
+        if (value > Integer.MAX_VALUE) {
+            throw Utils.error("Corrupt object.");
+        }
+        return (int) value;
+    }
+
+    /** Reads a string written by Encoder.writeString.
+     * @return the string
+     */
+    String readString() {
+        int n = readInt();
+        need(n);
+        String result = new String(data, pos, n, StandardCharsets.UTF_8);
+        pos += n;
+        return result;
+    }
+
+    /** Reads an ID written by Encoder.writeID.
+     * @return the sha-1 hash, as 40 hexadecimal digits
+     */
+    String readID() {
+        need(Encoder.ID_SIZE);
+        String result = Utils.toHex(data, pos, Encoder.ID_SIZE);
+        pos += Encoder.ID_SIZE;
+        return result;
+    }
+
+    /** Checks that some more bytes are left.
+     * @param n - how many bytes are about to be read
+     */
+    private void need(int n) {
+        if (n > length - pos) {
+            throw Utils.error("Corrupt object.");
+        }
+    }
+
+    /** The size every thread's buffer starts at. */
+    private static final int INITIAL_SIZE = 1 << 12;
+
+    /** The largest buffer kept from one object to the next. */
+    private static final int MAX_KEPT = 1 << 20;
+
+    /** The buffer of each thread. */
+    private static final ThreadLocal<byte[]> BUFFER =
+        ThreadLocal.withInitial(() -> new byte[INITIAL_SIZE]);
+
+    /** The encoded bytes. */
+    private final byte[] data;
+
+    /** The number of encoded bytes at the start of DATA. */
+    private final int length;
+
+    /** Where the next read starts. */
+    private int pos;
+}
@@ -0,0 +1,75 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** The codec for objects compressed with java.util.zip's Deflater. The
+ * level only matters when writing: any level can be read back by the
+ * same Inflater.
+ * @author Ryan Van de Water
+ */
+class DeflateCodec implements Codec {
+
+    /** A deflate codec compressing at the given level.
+     * @param compressionLevel - from 0 (fastest) to 9 (smallest)
+     */
+    DeflateCodec(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION
+                || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw Utils.error("Compression level must be from 0 to 9.");
+        }
+        level = compressionLevel;
+    }
+
+    @Override
+    public byte getID() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /** The ID of this codec in object headers. */
+    static final byte ID = 1;
+
+    /** The level used when none is configured. */
+    static final int DEFAULT_LEVEL = 6;
+
+    /** The size of the buffers between the codec and the file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The compression level objects are written at. */
+    private final int level;
+}
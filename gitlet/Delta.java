@@ -0,0 +1,205 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Encodes one version of a file as a list of edits to another, in the
+ * spirit of git's pack deltas. A delta starts with the lengths of the
+ * base and the result, as varints, followed by instructions:
+ *
+ *     COPY   offset length   copy LENGTH bytes of the base from OFFSET
+ *     INSERT length bytes    append the LENGTH literal BYTES
+ *
+ * where every number is a varint. Matches are found by hashing each
+ * aligned block of the base and rolling a hash of the same width over
+ * the target, then extending every hit as far as it goes in both
+ * directions.
+ * @author Ryan Van de Water
+ */
+class Delta {
+
+    /** Computes a delta that turns BASE into TARGET.
+     * @param base - the version the delta refers to
+     * @param target - the version the delta rebuilds
+     * @param limit - the size a delta must stay under to be useful
+     * @return the delta, or null if it would be LIMIT bytes or more
+     */
+    static byte[] create(byte[] base, byte[] target, int limit) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        int pending = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            Integer at = blocks.get(h);
+            if (at != null && Arrays.equals(base, at, at + BLOCK,
+                    target, i, i + BLOCK)) {
+                int start = at;
+                int from = i;
+                while (start > 0 && from > pending
+                        && base[start - 1] == target[from - 1]) {
+                    start--;
+                    from--;
+                }
+                int end = at + BLOCK;
+                int to = i + BLOCK;
+                while (end < base.length && to < target.length
+                        && base[end] == target[to]) {
+                    end++;
+                    to++;
+                }
+                insert(out, target, pending, from);
+                out.write(COPY);
+                writeVarint(out, start);
+                writeVarint(out, end - start);
+                if (out.size() >= limit) {
+                    return null;
+                }
+                pending = to;
+                i = to;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+            } else {
+                if (i + BLOCK < target.length) {
+                    h = roll(h, target[i], target[i + BLOCK]);
+                }
+                i++;
+            }
+        }
+        insert(out, target, pending, target.length);
+        return out.size() < limit ? out.toByteArray() : null;
+    }
+
+    /** Rebuilds a version of a file from a delta.
+     * @param base - the version the delta refers to
+     * @param delta - the delta made by create
+     * @return the version the delta rebuilds
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = {0};
+        if (readVarint(delta, pos) != base.length) {
+            throw Utils.error("Delta does not match its base.");
+        }
+        byte[] result = new byte[readVarint(delta, pos)];
+        int size = 0;
+        while (pos[0] < delta.length) {
+            byte op = delta[pos[0]++];
+            if (op == COPY) {
+                int offset = readVarint(delta, pos);
+                int length = readVarint(delta, pos);
+                System.arraycopy(base, offset, result, size, length);
+                size += length;
+            } else {
+                int length = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, size, length);
+                pos[0] += length;
+                size += length;
+            }
+        }
+        if (size != result.length) {
+            throw Utils.error("Delta is truncated.");
+        }
+        return result;
+    }
+
+    /** Emits an INSERT instruction for the literal bytes between two
+     * points of the target, if there are any.
+     * @param out - where the delta is being written
+     * @param target - the version being encoded
+     * @param from - the first byte to insert
+     * @param to - just past the last byte to insert
+     */
+    private static void insert(ByteArrayOutputStream out, byte[] target,
+                               int from, int to) {
+        if (from < to) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    /** Hashes the BLOCK bytes of DATA starting at START.
+     * @param data - the bytes
+     * @param start - the first byte of the block
+     * @return the hash of the block
+     */
+    private static int hash(byte[] data, int start) {
+        int h = 0;
+        for (int k = start; k < start + BLOCK; k += 1) {
+            h = h * PRIME + (data[k] & 0xff);
+        }
+        return h;
+    }
+
+    /** Slides a block hash one byte to the right.
+     * @param h - the hash of the current block
+     * @param out - the byte leaving the block
+     * @param in - the byte entering the block
+     * @return the hash of the next block
+     */
+    private static int roll(int h, byte out, byte in) {
+        return (h - (out & 0xff) * TOP) * PRIME + (in & 0xff);
+    }
+
+    /** Writes a non-negative number seven bits at a time, low bits
+     * first, with the high bit set on every byte but the last.
+     * @param out - where to write the number
+     * @param value - the number
+     */
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Reads a number written by writeVarint.
+     * @param data - the bytes holding the number
+     * @param pos - a one-element array holding where the number starts,
+     *            which is moved past it
+     * @return the number
+     */
+    static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /** The width of the blocks matched between versions. */
+    private static final int BLOCK = 16;
+
+    /** The multiplier of the block hash. */
+    private static final int PRIME = 31;
+
+    /** PRIME raised to the power BLOCK - 1, the weight of the byte
+     * leaving a block. */
+    private static final int TOP;
+
+    static {
+        int top = 1;
+        for (int k = 1; k < BLOCK; k += 1) {
+            top *= PRIME;
+        }
+        TOP = top;
+    }
+
+    /** The instruction that copies bytes from the base. */
+    private static final byte COPY = 1;
+
+    /** The instruction that appends literal bytes. */
+    private static final byte INSERT = 0;
+}
@@ -0,0 +1,397 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** Finds the lines that differ between two versions of a file, with
+ * Myers' O(ND) difference algorithm in its linear-space form: the
+ * middle snake of the shortest edit script is found by searching
+ * forwards and backwards at once, and the two halves on either side of
+ * it are solved recursively, so only two vectors of O(N + M) integers
+ * are ever needed. As in GNU diff, common prefixes and suffixes are
+ * stripped before every search, and lines are compared as small
+ * integers after interning them.
+ *
+ * By default the Myers search is preceded by the patience heuristic:
+ * lines that occur exactly once in both versions are matched up in the
+ * longest run that keeps their order, and only the gaps between those
+ * anchors are searched. This keeps hunks aligned on distinctive lines
+ * such as function headers rather than on braces and blank lines, and
+ * splits large files into small searches. Setting diff.algorithm to
+ * myers turns the heuristic off. Both diff and merge use this engine.
+ * @author Ryan Van de Water
+ */
+class Diff {
+
+    /** A region where two sequences differ: A[aStart, aEnd) is
+     * replaced by B[bStart, bEnd). Either region may be empty. */
+    static class Hunk {
+
+        /** A hunk replacing A[AS, AE) by B[BS, BE).
+         * @param as - the first line of A that is replaced
+         * @param ae - just past the last line of A that is replaced
+         * @param bs - the first line of B that replaces it
+         * @param be - just past the last line of B that replaces it
+         */
+        Hunk(int as, int ae, int bs, int be) {
+            aStart = as;
+            aEnd = ae;
+            bStart = bs;
+            bEnd = be;
+        }
+
+        /** The first line of A that is replaced. */
+        final int aStart;
+
+        /** Just past the last line of A that is replaced. */
+        final int aEnd;
+
+        /** The first line of B that replaces it. */
+        final int bStart;
+
+        /** Just past the last line of B that replaces it. */
+        final int bEnd;
+    }
+
+    /** Compares two sequences of interned lines.
+     * @param a - the old sequence
+     * @param b - the new sequence
+     * @return the regions where they differ, in order
+     */
+    static List<Hunk> compute(int[] a, int[] b) {
+        String algorithm = Config.get("diff.algorithm", "patience");
+        Diff d = new Diff(a, b);
+        if (algorithm.equals("patience")) {
+            d.patience(0, a.length, 0, b.length);
+        } else if (algorithm.equals("myers")) {
+            d.compare(0, a.length, 0, b.length);
+        } else {
+            throw Utils.error("Setting diff.algorithm must be patience"
+                    + " or myers.");
+        }
+        List<Hunk> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !d.aChanged[i]
+                    && !d.bChanged[j]) {
+                i++;
+                j++;
+            } else {
+                int si = i;
+                int sj = j;
+                while (i < a.length && d.aChanged[i]) {
+                    i++;
+                }
+                while (j < b.length && d.bChanged[j]) {
+                    j++;
+                }
+                result.add(new Hunk(si, i, sj, j));
+            }
+        }
+        return result;
+    }
+
+    /** Splits the contents of a file into lines, each keeping its line
+     * terminator. Bytes are mapped one to one onto characters, so any
+     * file splits and joins back exactly.
+     * @param content - the contents of the file
+     * @return its lines
+     */
+    static List<String> lines(byte[] content) {
+        String text = new String(content, StandardCharsets.ISO_8859_1);
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i += 1) {
+            if (text.charAt(i) == '\n') {
+                result.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            result.add(text.substring(start));
+        }
+        return result;
+    }
+
+    /** Turns lines back into the bytes of a file.
+     * @param lines - lines from lines()
+     * @return the contents they came from
+     */
+    static byte[] join(List<String> lines) {
+        return String.join("", lines).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /** Numbers distinct lines, so that equal lines of several versions
+     * get equal numbers.
+     * @param versions - the lines of each version
+     * @return the numbers of the lines of each version
+     */
+    @SafeVarargs
+    static int[][] intern(List<String>... versions) {
+        HashMap<String, Integer> ids = new HashMap<>();
+        int[][] result = new int[versions.length][];
+        for (int v = 0; v < versions.length; v += 1) {
+            List<String> lines = versions[v];
+            result[v] = new int[lines.size()];
+            for (int i = 0; i < lines.size(); i += 1) {
+                Integer id = ids.putIfAbsent(lines.get(i), ids.size());
+                result[v][i] = id == null ? ids.size() - 1 : id;
+            }
+        }
+        return result;
+    }
+
+    /** Checks whether a file looks like binary data rather than text,
+     * by looking for a zero byte near its start, as git does.
+     * @param content - the contents of the file
+     * @return whether or not it should not be diffed line by line
+     */
+    static boolean isBinary(byte[] content) {
+        int n = Math.min(content.length, BINARY_PROBE);
+        for (int i = 0; i < n; i += 1) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Prepares to compare two sequences.
+     * @param a - the old sequence
+     * @param b - the new sequence
+     */
+    private Diff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        aChanged = new boolean[a.length];
+        bChanged = new boolean[b.length];
+        int size = 2 * (a.length + b.length) + 4;
+        forward = new int[size];
+        backward = new int[size];
+        int lines = 0;
+        for (int line : a) {
+            lines = Math.max(lines, line + 1);
+        }
+        inA = new int[lines];
+        inB = new int[lines];
+        where = new int[lines];
+    }
+
+    /** Marks the lines that differ between A[aLo, aHi) and
+     * B[bLo, bHi), anchoring on the lines unique to both first.
+     * @param aLo - the first line of A to compare
+     * @param aHi - just past the last line of A to compare
+     * @param bLo - the first line of B to compare
+     * @param bHi - just past the last line of B to compare
+     */
+    private void patience(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        int[] anchors = anchors(aLo, aHi, bLo, bHi);
+        if (anchors.length == 0) {
+            compare(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int i = aLo;
+        int j = bLo;
+        for (int k = 0; k < anchors.length; k += 2) {
+            patience(i, anchors[k], j, anchors[k + 1]);
+            i = anchors[k] + 1;
+            j = anchors[k + 1] + 1;
+        }
+        patience(i, aHi, j, bHi);
+    }
+
+    /** Finds the longest run of lines that occur exactly once in each of
+     * A[aLo, aHi) and B[bLo, bHi), in the same order in both, by
+     * patience sorting.
+     * @param aLo - the first line of A
+     * @param aHi - just past the last line of A
+     * @param bLo - the first line of B
+     * @param bHi - just past the last line of B
+     * @return the positions of the matched lines, in A then in B, for
+     * each match in order
+     */
+    private int[] anchors(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i += 1) {
+            inA[a[i]] = 0;
+            inB[a[i]] = 0;
+        }
+        for (int i = aLo; i < aHi; i += 1) {
+            inA[a[i]]++;
+        }
+        for (int j = bLo; j < bHi; j += 1) {
+            if (b[j] < inA.length && inA[b[j]] == 1) {
+                inB[b[j]]++;
+                where[b[j]] = j;
+            }
+        }
+        int[] piles = new int[Math.min(aHi - aLo, bHi - bLo) + 1];
+        int[] prev = new int[aHi - aLo];
+        int[] match = new int[aHi - aLo];
+        int height = 0;
+        for (int i = aLo; i < aHi; i += 1) {
+            if (inA[a[i]] != 1 || inB[a[i]] != 1) {
+                continue;
+            }
+            int j = where[a[i]];
+            match[i - aLo] = j;
+            int lo = 0;
+            int hi = height;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (match[piles[mid] - aLo] < j) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            prev[i - aLo] = lo == 0 ? -1 : piles[lo - 1];
+            piles[lo] = i;
+            height = Math.max(height, lo + 1);
+        }
+        int[] result = new int[2 * height];
+        int i = height == 0 ? -1 : piles[height - 1];
+        for (int k = height - 1; k >= 0; k -= 1) {
+            result[2 * k] = i;
+            result[2 * k + 1] = match[i - aLo];
+            i = prev[i - aLo];
+        }
+        return result;
+    }
+
+    /** Marks the lines that differ between A[aLo, aHi) and
+     * B[bLo, bHi).
+     * @param aLo - the first line of A to compare
+     * @param aHi - just past the last line of A to compare
+     * @param bLo - the first line of B to compare
+     * @param bHi - just past the last line of B to compare
+     */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi) {
+            for (int j = bLo; j < bHi; j += 1) {
+                bChanged[j] = true;
+            }
+        } else if (bLo == bHi) {
+            for (int i = aLo; i < aHi; i += 1) {
+                aChanged[i] = true;
+            }
+        } else {
+            int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+            compare(aLo, snake[0], bLo, snake[1]);
+            compare(snake[2], aHi, snake[3], bHi);
+        }
+    }
+
+    /** Finds the middle snake of the shortest edit script between
+     * A[aLo, aHi) and B[bLo, bHi), which must both be non-empty and
+     * differ in their first and last lines.
+     * @param aLo - the first line of A
+     * @param aHi - just past the last line of A
+     * @param bLo - the first line of B
+     * @param bHi - just past the last line of B
+     * @return where the snake starts in A and B, and where it ends
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+        int off = max + 1 + Math.max(0, -delta);
+        forward[off + 1] = 0;
+        backward[off + delta - 1] = n;
+        for (int d = 0; d <= max; d += 1) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d
+                        && forward[off + k - 1] < forward[off + k + 1])) {
+                    x = forward[off + k + 1];
+                } else {
+                    x = forward[off + k - 1] + 1;
+                }
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[off + k] = x;
+                if (odd && k >= delta - (d - 1) && k <= delta + (d - 1)
+                        && x >= backward[off + k]) {
+                    return new int[] {aLo + x0, bLo + y0, aLo + x, bLo + y};
+                }
+            }
+            for (int k = delta - d; k <= delta + d; k += 2) {
+                int x;
+                if (k == delta + d || (k != delta - d
+                        && backward[off + k - 1] < backward[off + k + 1])) {
+                    x = backward[off + k - 1];
+                } else {
+                    x = backward[off + k + 1] - 1;
+                }
+                int y = x - k;
+                int x1 = x;
+                int y1 = y;
+                while (x > 0 && y > 0 && a[aLo + x - 1] == b[bLo + y - 1]) {
+                    x--;
+                    y--;
+                }
+                backward[off + k] = x;
+                if (!odd && k >= -d && k <= d && x <= forward[off + k]) {
+                    return new int[] {aLo + x, bLo + y, aLo + x1, bLo + y1};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake found.");
+    }
+
+    /** How many leading bytes isBinary looks at. */
+    private static final int BINARY_PROBE = 8000;
+
+    /** The old sequence. */
+    private final int[] a;
+
+    /** The new sequence. */
+    private final int[] b;
+
+    /** Which lines of A are not in B. */
+    private final boolean[] aChanged;
+
+    /** Which lines of B are not in A. */
+    private final boolean[] bChanged;
+
+    /** How often each line occurs in the part of A being anchored. */
+    private final int[] inA;
+
+    /** How often each line unique to that part of A occurs in the part
+     * of B being anchored. */
+    private final int[] inB;
+
+    /** Where in B each such line was last seen. */
+    private final int[] where;
+
+    /** The furthest x reached on each diagonal searching forwards. */
+    private final int[] forward;
+
+    /** The smallest x reached on each diagonal searching backwards. */
+    private final int[] backward;
+}
@@ -0,0 +1,154 @@
+package gitlet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Writes commits and trees in gitlet's own binary format,
+ * which a Decoder reads back. Every object starts with the version of
+ * its layout, so that a layout can change without breaking what was
+ * written before; numbers are varints, strings are a varint length
+ * followed by their UTF-8 bytes, and IDs are their 20 raw bytes.
+ *
+ * Each thread has one Encoder, whose buffer is reused for every object
+ * it writes, so that writing an object allocates nothing once the
+ * buffer has grown to fit.
+ * @author Ryan Van de Water
+ */
+class Encoder {
+
+    /** Returns this thread's encoder, emptied.
+     * @return an empty encoder
+     */
+    static Encoder get() {
+        Encoder result = CURRENT.get();
+        if (result.buffer.length > MAX_KEPT) {
+            result.buffer = new byte[INITIAL_SIZE];
+        }
+        result.size = 0;
+        return result;
+    }
+
+    /** Writes one byte.
+     * @param b - the byte, in its low eight bits
+     * @return this encoder
+     */
+    Encoder writeByte(int b) {
+        ensure(1);
+        buffer[size++] = (byte) b;
+        return this;
+    }
+
+    /** Writes a non-negative number seven bits at a time, low bits
+     * first, with the high bit set on every byte but the last.
+     * @param value - the number
+     * @return this encoder
+     */
+    Encoder writeVarint(long value) {
+        ensure(MAX_VARINT);
+        while ((value & ~0x7fL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    /** Writes a string as its length in UTF-8 bytes and those bytes.
+     * ASCII strings, such as most file names, are copied straight into
+     * the buffer.
+     * @param s - the string
+     * @return this encoder
+     */
+    Encoder writeString(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i += 1) {
+            if (s.charAt(i) >= 0x80) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(bytes.length);
+                ensure(bytes.length);
+                System.arraycopy(bytes, 0, buffer, size, bytes.length);
+                size += bytes.length;
+                return this;
+            }
+        }
+        writeVarint(n);
+        ensure(n);
+        for (int i = 0; i < n; i += 1) {
+            buffer[size++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    /** Writes an ID as its raw bytes.
+     * @param id - the sha-1 hash, as 40 hexadecimal digits
+     * @return this encoder
+     */
+    Encoder writeID(String id) {
+        ensure(ID_SIZE);
+        for (int i = 0; i < ID_SIZE; i += 1) {
+            int high = Utils.hexValue(id.charAt(2 * i));
+            buffer[size++] = (byte) ((high << 4)
+                    | Utils.hexValue(id.charAt(2 * i + 1)));
+        }
+        return this;
+    }
+
+    /** Getter method for the number of bytes written so far.
+     * @return the size of the encoding
+     */
+    int size() {
+        return size;
+    }
+
+    /** Copies out what has been written.
+     * @return a fresh array of the bytes written so far
+     */
+    byte[] toByteArray() {
+        byte[] result = new byte[size];
+        System.arraycopy(buffer, 0, result, 0, size);
+        return result;
+    }
+
+    /** Writes out what has been written so far.
+     * @param out - the stream to write it to
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /** Grows the buffer to fit some more bytes.
+     * @param more - the number of bytes about to be written
+     */
+    private void ensure(int more) {
+        if (size + more > buffer.length) {
+            byte[] bigger = new byte[Math.max(2 * buffer.length,
+                    size + more)];
+            System.arraycopy(buffer, 0, bigger, 0, size);
+            buffer = bigger;
+        }
+    }
+
+    /** The length of a raw sha-1 hash. */
+    static final int ID_SIZE = 20;
+
+    /** The most bytes a varint can take. */
+    private static final int MAX_VARINT = 10;
+
+    /** The size every buffer starts at. */
+    private static final int INITIAL_SIZE = 1 << 12;
+
+    /** The largest buffer kept from one object to the next; one grown
+     * past this by a huge tree is dropped. */
+    private static final int MAX_KEPT = 1 << 20;
+
+    /** The encoder of each thread. */
+    private static final ThreadLocal<Encoder> CURRENT =
+        ThreadLocal.withInitial(Encoder::new);
+
+    /** The bytes written so far, at the start of the buffer. */
+    private byte[] buffer = new byte[INITIAL_SIZE];
+
+    /** The number of bytes written so far. */
+    private int size;
+}
@@ -0,0 +1,353 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** The staging area, kept in one binary file in the spirit of git's
+ * index. It holds an entry for every path the next commit will track,
+ * so the next commit's tree is simply the index, files staged for
+ * addition are the entries that differ from the head commit, and files
+ * staged for removal are the head commit's paths that have no entry.
+ *
+ * Each entry also remembers what the file looked like on disk when its
+ * blob was last computed, so a file whose stat data has not changed
+ * since is known to be unchanged without reading it. After a small
+ * header (magic number, version, number of entries) the file holds one
+ * entry per path, in path order:
+ *
+ *     mode          4 bytes
+ *     size          8 bytes
+ *     mtime         8 bytes (nanoseconds since the epoch)
+ *     ctime         8 bytes (nanoseconds since the epoch)
+ *     inode         8 bytes
+ *     blob ID      20 bytes
+ *     path length   2 bytes
+ *     path         path length bytes of UTF-8
+ *
+ * An entry whose stat data is all zero has no cached stat data. As in
+ * git, a file modified within the same clock tick as the index was
+ * written could look unchanged, so entries whose mtime is not older
+ * than the index file are never trusted.
+ * @author Ryan Van de Water
+ */
+class Index {
+
+    /** Returns the index of the repository, mapping and reading it the
+     * first time it is asked for.
+     * @return the index
+     */
+    static Index get() {
+        if (instance == null) {
+            instance = new Index(INDEX_FILE);
+        }
+        return instance;
+    }
+
+    /** Forgets the index read so far, so that the next get() reads it
+     * again, as it stands on disk now. */
+    static void forget() {
+        instance = null;
+    }
+
+    /** Reads the index stored in the given file.
+     * @param file - the index file, which need not exist yet
+     */
+    private Index(File file) {
+        entries = new TreeMap<>();
+        if (!file.isFile()) {
+            written = 0;
+            return;
+        }
+        written = TimeUnit.MILLISECONDS.toNanos(file.lastModified());
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+            throw Utils.error("Unrecognized index %s.", file);
+        }
+        for (int n = buf.getInt(); n > 0; n -= 1) {
+            Entry e = new Entry();
+            e.mode = buf.getInt();
+            e.size = buf.getLong();
+            e.mtime = buf.getLong();
+            e.ctime = buf.getLong();
+            e.inode = buf.getLong();
+            byte[] raw = new byte[ID_SIZE];
+            buf.get(raw);
+            e.blob = Utils.toHex(raw, 0, ID_SIZE);
+            byte[] path = new byte[buf.getShort() & 0xffff];
+            buf.get(path);
+            entries.put(new String(path, StandardCharsets.UTF_8), e);
+        }
+    }
+
+    /** Getter method for the paths of the index and their blobs.
+     * @return the blob ID of every path, in path order
+     */
+    TreeMap<String, String> getEntries() {
+        TreeMap<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            result.put(e.getKey(), e.getValue().blob);
+        }
+        return result;
+    }
+
+    /** Checks whether a path has an entry.
+     * @param path - the path
+     * @return whether or not the next commit would track it
+     */
+    boolean contains(String path) {
+        return entries.containsKey(path);
+    }
+
+    /** Getter method for the blob of a path.
+     * @param path - the path
+     * @return its blob ID, or null if it has no entry
+     */
+    String getBlob(String path) {
+        Entry e = entries.get(path);
+        return e == null ? null : e.blob;
+    }
+
+    /** Stages a file from the working directory, storing its contents
+     * as a blob unless its stat data shows it has not changed since it
+     * was last staged.
+     * @param path - the path of the file
+     * @param f - the file
+     * @return its blob ID
+     */
+    String add(String path, File f) {
+        Entry now = stat(f);
+        Entry old = entries.get(path);
+        if (old != null && unchanged(old, now)) {
+            return old.blob;
+        }
+        now.blob = Blob.store(f);
+        entries.put(path, now);
+        return now.blob;
+    }
+
+    /** Checks whether a working file is certainly unchanged since its
+     * blob was computed, judging by its stat data alone.
+     * @param path - the path of the file
+     * @param now - the file's current stat data, from stat
+     * @return whether or not the file still has its entry's blob
+     */
+    boolean unchanged(String path, Entry now) {
+        Entry old = entries.get(path);
+        return old != null && unchanged(old, now);
+    }
+
+    /** Remembers new stat data for a file whose contents were found to
+     * match its entry's blob anyway.
+     * @param path - the path of the file
+     * @param now - the file's current stat data, from stat
+     */
+    void refresh(String path, Entry now) {
+        Entry old = entries.get(path);
+        if (old != null) {
+            now.blob = old.blob;
+            entries.put(path, now);
+        }
+    }
+
+    /** Stages a blob for a path whose file was just written with its
+     * contents, remembering the file's stat data.
+     * @param path - the path of the file
+     * @param blob - the blob ID of its contents
+     * @param f - the file
+     */
+    void update(String path, String blob, File f) {
+        Entry e = stat(f);
+        e.blob = blob;
+        entries.put(path, e);
+    }
+
+    /** Stages a blob for a path without stat data, so that the
+     * working file is hashed the next time it is looked at.
+     * @param path - the path of the file
+     * @param blob - the blob ID to stage
+     */
+    void stage(String path, String blob) {
+        Entry e = new Entry();
+        e.blob = blob;
+        entries.put(path, e);
+    }
+
+    /** Unstages a path, so that the next commit does not track it.
+     * @param path - the path
+     */
+    void remove(String path) {
+        entries.remove(path);
+    }
+
+    /** Builds the tree the index would be committed as, without
+     * storing it.
+     * @return the tree of the index's files
+     */
+    Tree getTree() {
+        return new Tree(getEntries());
+    }
+
+    /** Getter method for the number of paths in the index.
+     * @return the number of files the next commit would track
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /** Writes the index back to its file, replacing it atomically. */
+    void write() {
+        Transaction tx = Transaction.begin();
+        write(tx);
+        tx.commit();
+    }
+
+    /** Writes the index back to its file when a transaction commits.
+     * @param tx - the transaction
+     */
+    void write(Transaction tx) {
+        int total = HEADER_SIZE;
+        TreeMap<String, byte[]> paths = new TreeMap<>();
+        for (String path : entries.keySet()) {
+            byte[] raw = path.getBytes(StandardCharsets.UTF_8);
+            paths.put(path, raw);
+            total += ENTRY_SIZE + raw.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(total);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+        for (Map.Entry<String, Entry> pair : entries.entrySet()) {
+            Entry e = pair.getValue();
+            byte[] raw = paths.get(pair.getKey());
+            buf.putInt(e.mode).putLong(e.size).putLong(e.mtime);
+            buf.putLong(e.ctime).putLong(e.inode);
+            buf.put(Utils.fromHex(e.blob));
+            buf.putShort((short) raw.length).put(raw);
+        }
+        File temp = tx.replace(INDEX_FILE, buf.array());
+        written = TimeUnit.MILLISECONDS.toNanos(temp.lastModified());
+    }
+
+    /** Checks whether a file still has the stat data of its entry.
+     * @param old - the entry
+     * @param now - the file's current stat data
+     * @return whether or not the file is certainly unchanged
+     */
+    private boolean unchanged(Entry old, Entry now) {
+        return old.mtime != 0 && old.mtime < written
+            && old.mode == now.mode && old.size == now.size
+            && old.mtime == now.mtime && old.ctime == now.ctime
+            && old.inode == now.inode;
+    }
+
+    /** Reads the stat data of a file. The unix attributes are used where
+     * the platform has them, and the basic ones otherwise.
+     * @param f - the file
+     * @return an entry with the stat data and no blob
+     */
+    static Entry stat(File f) {
+        Entry e = new Entry();
+        try {
+            if (UNIX) {
+                Map<String, Object> attrs = Files.readAttributes(f.toPath(),
+                        "unix:mode,size,lastModifiedTime,ctime,ino",
+                        LinkOption.NOFOLLOW_LINKS);
+                e.mode = (Integer) attrs.get("mode");
+                e.size = (Long) attrs.get("size");
+                e.mtime = nanos((FileTime) attrs.get("lastModifiedTime"));
+                e.ctime = nanos((FileTime) attrs.get("ctime"));
+                e.inode = (Long) attrs.get("ino");
+            } else {
+                BasicFileAttributes attrs = Files.readAttributes(f.toPath(),
+                        BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                e.size = attrs.size();
+                e.mtime = nanos(attrs.lastModifiedTime());
+                e.ctime = nanos(attrs.creationTime());
+                Object key = attrs.fileKey();
+                e.inode = key == null ? 0 : key.hashCode();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return e;
+    }
+
+    /** Converts a file time to nanoseconds since the epoch.
+     * @param time - the file time
+     * @return the same time in nanoseconds
+     */
+    private static long nanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    /** The stat data and blob of one path. */
+    static class Entry {
+
+        /** The file's mode bits. */
+        private int mode;
+
+        /** The file's size in bytes. */
+        private long size;
+
+        /** When the file's contents last changed. */
+        private long mtime;
+
+        /** When the file's inode last changed. */
+        private long ctime;
+
+        /** The file's inode number. */
+        private long inode;
+
+        /** The blob ID of the file's contents. */
+        private String blob;
+    }
+
+    /** The index file of the repository. */
+    static final File INDEX_FILE = Utils.join(".gitlet", "index");
+
+    /** Whether the platform has the unix file attribute view. */
+    private static final boolean UNIX = FileSystems.getDefault()
+        .supportedFileAttributeViews().contains("unix");
+
+    /** Identifies an index file: "DIRC", as in git. */
+    private static final int MAGIC = 0x44495243;
+
+    /** The version of the index layout. */
+    private static final int VERSION = 1;
+
+    /** The size of the header in bytes. */
+    private static final int HEADER_SIZE = 12;
+
+    /** The size of a raw sha-1 ID in bytes. */
+    private static final int ID_SIZE = CommitGraph.ID_SIZE;
+
+    /** The size of an entry in bytes, not counting its path. */
+    private static final int ENTRY_SIZE = 4 + 8 + 8 + 8 + 8 + ID_SIZE + 2;
+
+    /** The index of the repository, once it has been read. */
+    private static Index instance;
+
+    /** The entry of every path, in path order. */
+    private final TreeMap<String, Entry> entries;
+
+    /** When the index file was last written, in nanoseconds since the
+     * epoch, or 0 if it has never been. */
+    private long written;
+}
@@ -1,17 +1,25 @@
 package gitlet;
 
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 
 import static java.lang.System.exit;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.HashMap;
-import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.ArrayList;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
 
 
 /** Driver class for Gitlet, the tiny stupid
@@ -38,6 +46,19 @@ public class Main {
             exit(0);
         }
         setUpPersistence();
+        try {
+            run(args);
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+            exit(0);
+        }
+    }
+
+    /** Carries out the command in ARGS.
+     * @param args - the command and its operands
+     */
+    static void run(String... args) throws IOException {
+        Transaction.recover();
         switch (args[0]) {
         case "init":
             checkgit(args[0]);
@@ -48,8 +69,7 @@ public class Main {
             break;
         case "commit":
             if (args.length == 1) {
-                System.out.println("Please enter a commit message.");
-                exit(0);
+                throw Utils.error("Please enter a commit message.");
             }
             commit(args[1]);
             break;
@@ -57,17 +77,16 @@ public class Main {
             rm(args[1]);
             break;
         case "log":
-            log();
+            log(args);
             break;
         case "global-log":
-            File global = new File(GLOBAL_PATH);
-            System.out.println(Utils.readContentsAsString(global));
+            globalLog(args);
             break;
         case "find":
-            find(args[1]);
+            find(args);
             break;
         case "status":
-            status();
+            status(args);
             break;
         case "checkout":
             checkout(args);
@@ -84,9 +103,20 @@ public class Main {
         case "merge":
             merge(args);
             break;
+        case "repack":
+            repack(args);
+            break;
+        case "diff":
+            diff(args);
+            break;
+        case "daemon":
+            daemon(args);
+            break;
         default:
-            System.out.println("No command with that name exists.");
-            exit(0);
+            throw Utils.error("No command with that name exists.");
+        }
+        if (Config.getBoolean("core.verbose", false)) {
+            System.err.println(ObjectCache.get());
         }
     }
 
@@ -94,78 +124,97 @@ public class Main {
      * objects such as Commits, Branches, Logs, etc. to be placed into.
      */
     static void init() throws IOException {
-        File addFolder = new File(ADD_PATH);
-        addFolder.mkdir();
-        File removalFolder = new File(REMOVAL_PATH);
-        removalFolder.mkdir();
-        Commit initialCommit = new Commit(FORMATTER.format(new Date(0)),
-                "initial commit", null, null);
-        File commitFolder = new File(COMMITS_PATH);
-        commitFolder.mkdir();
-        File newCommit = new File(pathMaker(COMMITS_PATH,
-                String.format("%s", initialCommit.getID())));
-        File globalLogFile = new File(GLOBAL_PATH);
+        ObjectStore.init();
+        Transaction tx = Transaction.begin();
+        Tree emptyTree = new Tree(new HashMap<>());
+        emptyTree.save();
+        Commit initialCommit = new Commit(0, "initial commit",
+                emptyTree.getID(), new ArrayList<>());
+        initialCommit.save();
+        CommitGraph.create();
+        tx.append(CommitGraph.GRAPH_FILE, MessageIndex.MESSAGES_FILE,
+                new File(GLOBAL_PATH));
+        CommitGraph.get().append(initialCommit);
+        MessageIndex.append(initialCommit.getID(),
+                initialCommit.getMessage());
         Branch master = new Branch("master", initialCommit);
-        File logFile = new File(pathMaker(LOGS_PATH,
-                String.format("%s.txt", master.getName())));
-        File followFile = new File(FOLLOW_PATH);
-        File notFollowFolder = new File(NOTFOLLOW_PATH);
-        notFollowFolder.mkdir();
-        File removedFolder = new File(REMOVED_PATH);
-        removedFolder.mkdir();
-        newCommit.createNewFile();
-        globalLogFile.createNewFile();
-        followFile.createNewFile();
-        logFile.createNewFile();
-        Utils.writeObject(newCommit, initialCommit);
-        Utils.writeContents(logFile, String.format("===%ncommit %s%nDate: %s%n"
-                        + "%s", initialCommit.getID(),
-                initialCommit.getTimeStamp(), initialCommit.getMessage()));
-        Utils.writeContents(globalLogFile, String.format("===%ncommit "
-                        + "%s%nDate: %s%n%s", initialCommit.getID(),
-                initialCommit.getTimeStamp(), initialCommit.getMessage()));
-        Utils.writeObject(followFile, master);
+        RefLog.append(new File(GLOBAL_PATH), initialCommit.getID());
+        master.write(tx);
+        master.makeCurrent(tx);
+        tx.commit();
     }
 
-    /** Updates the staging area or Add folder in the index directory
-     * with the specified file.
-     * @param args - the specified file
+    /** Stages the specified files in the index, storing each one's
+     * contents as a blob right away. A directory stages every file
+     * under it, and a file staged for removal is brought back from the
+     * head commit first.
+     * @param args - the command and the specified files
      */
     static void add(String... args) throws IOException {
         checkgit(args[0]);
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        HashMap<String, Blob> track = currBranch.getHEAD().getTracking();
-        for (String file : args) {
-            if (file.matches("[a-z0-9]+\\.[a-z0-9]+")) {
-                File remCheck = new File(REMOVAL_PATH, file);
-                File currFile = new File(file);
-                File indexed = new File(ADD_PATH, file);
-                File remD = new File(REMOVED_PATH, file);
-                if (remD.exists()) {
-                    String cont = Utils.readContentsAsString(remD);
-                    currFile.createNewFile();
-                    Utils.writeContents(currFile, cont);
-                    remD.delete();
+        Index index = Index.get();
+        Tree head = null;
+        for (int i = 1; i < args.length; i += 1) {
+            String file = repoPath(args[i]);
+            File currFile = file == null ? null : new File(file);
+            if (file != null && !currFile.exists()
+                    && !index.contains(file)) {
+                if (head == null) {
+                    head = Branch.current().getHEAD().getTree();
+                }
+                String blob = head.lookup(file);
+                if (blob != null) {
+                    Blob.copyTo(blob, currFile);
                 }
-                if (currFile.exists()) {
-                    String contents = Utils.readContentsAsString(currFile);
-                    if (track != null && track.containsKey(file)) {
-                        String trackCont = track.get(file).getContents();
-                        if (trackCont.compareTo(contents) == 0) {
-                            return;
+            }
+            if (currFile == null || !currFile.exists()) {
+                System.out.println("File does not exist.");
+            } else if (currFile.isDirectory()) {
+                try (Stream<Path> walk = Files.walk(currFile.toPath())) {
+                    for (Path p : (Iterable<Path>) walk::iterator) {
+                        String inner = repoPath(p.toString());
+                        if (inner != null && Files.isRegularFile(p)) {
+                            index.add(inner, p.toFile());
                         }
                     }
-                    if (remCheck.exists()) {
-                        remCheck.delete();
-                    }
-                    indexed.createNewFile();
-                    Utils.writeContents(indexed, contents);
-                } else {
-                    System.out.println("File does not exist.");
                 }
+            } else {
+                index.add(file, currFile);
             }
         }
+        index.write();
+    }
+
+    /** Turns a file name given on the command line into the path the
+     * index and trees use for it: relative to the working directory,
+     * with "/" between its parts.
+     * @param name - the file name
+     * @return its path, or null if it is outside the working directory
+     * or inside the .gitlet repository
+     */
+    static String repoPath(String name) {
+        Path top = CURR.toPath().toAbsolutePath().normalize();
+        Path rel = top.relativize(Paths.get(name).toAbsolutePath()
+                .normalize());
+        String path = rel.toString().replace(File.separatorChar, '/');
+        if (path.isEmpty() || rel.startsWith("..")
+                || rel.startsWith(GITLET_DIR.getName())) {
+            return null;
+        }
+        return path;
+    }
+
+    /** Deletes a tracked file, along with any directories it leaves
+     * empty.
+     * @param path - the path of the file
+     */
+    static void deleteFile(String path) {
+        File f = new File(path);
+        f.delete();
+        for (File dir = f.getParentFile(); dir != null
+                 && dir.delete(); dir = dir.getParentFile()) {
+            continue;
+        }
     }
 
     /** Creates a commit object using the files that are currently in
@@ -173,73 +222,216 @@ public class Main {
      * @param args - the client-specified message accompanying the commit.
      */
     static void commit(String args) throws IOException {
+        commit(args, null);
+    }
+
+    /** Creates a commit object using the files that are currently in
+     * the staging area, with a second parent when it records a merge.
+     * @param args - the client-specified message accompanying the commit.
+     * @param mergedID - the ID of the given branch's head being merged
+     *                 in, or null for an ordinary commit
+     */
+    static void commit(String args, String mergedID) throws IOException {
         checkgit("commit");
-        List<String> addList = Utils.plainFilenamesIn(new File(ADD_PATH));
-        List<String> remList = Utils.plainFilenamesIn(new File(REMOVAL_PATH));
-        File workingBranchFile = new File(FOLLOW_PATH);
-        List<String> remDList = Utils.plainFilenamesIn(new File(REMOVED_PATH));
-        Branch targetBranch = Utils.readObject(workingBranchFile, Branch.class);
-        String currLog = pathMaker(LOGS_PATH, String.format("%s.txt",
-                targetBranch.getName()));
-        Commit currHead = new Commit(null, null, null, null);
-        Commit newParent =  new Commit(null, null, null, null);
-        newParent.copyFrom(targetBranch.getHEAD());
-        currHead.setParent(newParent);
-        currHead.setTracking(newParent.getTracking());
-        if (addList.isEmpty() && remList.isEmpty()) {
-            System.out.println("No changes added to the commit.");
-            exit(0);
+        Branch targetBranch = Branch.current();
+        Commit parent = targetBranch.getHEAD();
+        Index index = Index.get();
+        Tree tree = index.getTree();
+        if (tree.getID().equals(parent.getTreeID())) {
+            throw Utils.error("No changes added to the commit.");
         }
         if (args.equals("")) {
-            System.out.println("Please enter a commit message.");
-            exit(0);
+            throw Utils.error("Please enter a commit message.");
+        }
+        Transaction tx = Transaction.begin();
+        index.write(tx);
+        tree.save();
+        List<String> parents = new ArrayList<>();
+        parents.add(parent.getID());
+        if (mergedID != null) {
+            parents.add(mergedID);
+        }
+        Commit currHead = new Commit(System.currentTimeMillis(), args,
+                tree.getID(), parents);
+        currHead.save();
+        tx.append(CommitGraph.GRAPH_FILE, MessageIndex.MESSAGES_FILE,
+                new File(GLOBAL_PATH));
+        CommitGraph.get().append(currHead);
+        MessageIndex.append(currHead.getID(), currHead.getMessage());
+        RefLog.append(new File(GLOBAL_PATH), currHead.getID());
+        targetBranch.setHEAD(currHead);
+        targetBranch.write(tx);
+        tx.commit();
+    }
+
+    /** Prints out every commit and merge inside the current branch,
+     * newest first, by following first parents through the commit
+     * graph. Only the commits that are shown are read.
+     * @param args - the command and its optional --skip=N and
+     *             --max-count=N operands
+     */
+    static void log(String... args) {
+        checkgit(args[0]);
+        int skip = pageOption(args, "--skip=", 0);
+        int max = pageOption(args, "--max-count=", Integer.MAX_VALUE);
+        Branch currBranch = Branch.current();
+        CommitGraph graph = CommitGraph.get();
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out)));
+        int shown = 0;
+        int pos = graph.require(currBranch.getHeadID());
+        for (; pos >= 0 && skip > 0; pos = graph.getParent(pos, 0)) {
+            skip--;
+        }
+        for (; pos >= 0 && shown < max; pos = graph.getParent(pos, 0)) {
+            logEntry(out, graph.getID(pos), shown > 0);
+            shown++;
+        }
+        out.flush();
+    }
+
+    /** Prints out every commit ever made, newest first, streaming the
+     * global log backwards.
+     * @param args - the command and its optional --skip=N and
+     *             --max-count=N operands
+     */
+    static void globalLog(String... args) {
+        checkgit(args[0]);
+        int skip = pageOption(args, "--skip=", 0);
+        int max = pageOption(args, "--max-count=", Integer.MAX_VALUE);
+        RefLog global = new RefLog(new File(GLOBAL_PATH));
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out)));
+        int shown = 0;
+        for (int i = global.size() - 1 - skip; i >= 0 && shown < max; i--) {
+            logEntry(out, global.getID(i), shown > 0);
+            shown++;
+        }
+        out.flush();
+    }
+
+    /** Prints out one commit of a log.
+     * @param out - where the log is being printed
+     * @param id - the ID of the commit
+     * @param separated - whether or not a blank line should precede it
+     */
+    static void logEntry(PrintWriter out, String id, boolean separated) {
+        Commit c = Commit.read(id);
+        if (separated) {
+            out.println();
         }
-        for (String file : addList) {
-            File addFile = new File(ADD_PATH, file);
-            Blob blobby = new Blob(addFile);
-            currHead.updateTracking(file, blobby);
-            addFile.delete();
+        out.printf("===%ncommit %s%nDate: %s%n%s%n", c.getID(),
+                c.getTimeStamp(), c.getMessage());
+    }
+
+    /** Reads a numeric option of log or global-log.
+     * @param args - the command and its operands
+     * @param name - the option's name, including the '='
+     * @param fallback - the value to use if the option is absent
+     * @return the value of the option
+     */
+    static int pageOption(String[] args, String name, int fallback) {
+        int value = fallback;
+        for (int i = 1; i < args.length; i += 1) {
+            if (!args[i].matches("--(skip|max-count)=\\d{1,9}")) {
+                throw Utils.error("Incorrect operands.");
+            } else if (args[i].startsWith(name)) {
+                value = Integer.parseInt(args[i].substring(name.length()));
+            }
         }
-        for (String file : remList) {
-            currHead.getTracking().remove(file);
-            File goner = new File(REMOVAL_PATH, file);
-            goner.delete();
+        return value;
+    }
+
+    /** Gathers the objects of the repository into a pack, storing
+     * similar blobs as deltas of each other, and folds the commits not
+     * yet sorted into the commit index and the message index.
+     * @param args - the command, which takes no operands
+     */
+    static void repack(String... args) {
+        checkgit(args[0]);
+        if (args.length != 1) {
+            throw Utils.error("Incorrect operands.");
+        }
+        CommitIndex.get().fold();
+        new MessageIndex().fold();
+        int[] counts = PackWriter.repack();
+        System.out.printf("Packed %d objects, %d as deltas.%n", counts[0],
+                counts[1]);
+    }
+
+    /** Shows how files differ as unified diffs: the working directory
+     * against the index, the index against the head commit with
+     * --cached, or one commit against another. Files whose blob IDs
+     * match, and directories whose tree IDs match, are skipped without
+     * being read.
+     * @param args - the command and its optional --cached operand or
+     *             two commit IDs
+     */
+    static void diff(String... args) {
+        checkgit(args[0]);
+        UnifiedDiff out = new UnifiedDiff(System.out);
+        if (args.length == 1) {
+            Index index = Index.get();
+            int threads = Config.getInt("status.threads",
+                    Runtime.getRuntime().availableProcessors());
+            WorkTree work = new WorkTree(index, threads);
+            for (Map.Entry<String, String> entry
+                     : work.getModified().entrySet()) {
+                String file = entry.getKey();
+                byte[] now = entry.getValue().equals("deleted") ? null
+                    : Utils.readContents(new File(file));
+                out.file(file, Blob.read(index.getBlob(file)), now);
+            }
+            if (work.refreshedIndex()) {
+                index.write();
+            }
+        } else if (args.length == 2 && args[1].equals("--cached")) {
+            Branch currBranch = Branch.current();
+            diffTrees(out, currBranch.getHEAD().getTree(),
+                    Index.get().getTree());
+        } else if (args.length == 3) {
+            String from = findLong(args[1]);
+            String to = findLong(args[2]);
+            if (from == null || to == null) {
+                throw Utils.error("No commit with that id exists.");
+            }
+            diffTrees(out, Commit.read(from).getTree(),
+                    Commit.read(to).getTree());
+        } else {
+            throw Utils.error("Incorrect operands.");
         }
-        for (String file : remDList) {
-            File remD = new File(REMOVED_PATH, file);
-            remD.delete();
+        out.flush();
+    }
+
+    /** Writes the differences between two trees.
+     * @param out - where to write them
+     * @param from - the old tree
+     * @param to - the new tree
+     */
+    static void diffTrees(UnifiedDiff out, Tree from, Tree to) {
+        for (Map.Entry<String, String[]> entry
+                 : Tree.diff(from, to).entrySet()) {
+            String[] ids = entry.getValue();
+            out.file(entry.getKey(),
+                    ids[0] == null ? null : Blob.read(ids[0]),
+                    ids[1] == null ? null : Blob.read(ids[1]));
         }
-        currHead.setTimestamp(FORMATTER.format(new Date()));
-        currHead.setMessage(args);
-        currHead.setCommitID(currHead.getTimeStamp(),
-                currHead.getMessage(), currHead.getTracking(),
-                currHead.getParent());
-        Branch replacedBranch = new Branch(targetBranch.getName(),
-                currHead);
-        Utils.writeObject(workingBranchFile, replacedBranch);
-        File logToBeChanged = new File(currLog);
-        File globalToBeChanged = new File(GLOBAL_PATH);
-        String globalBefore = Utils.readContentsAsString(globalToBeChanged);
-        String logBefore = Utils.readContentsAsString(logToBeChanged);
-        String newLog = logUpdate(logBefore, currHead);
-        String newGlobal = globalUpdate(globalBefore, currHead);
-        Utils.writeContents(logToBeChanged, newLog);
-        Utils.writeContents(globalToBeChanged, newGlobal);
-        File newCommitFile = new File(COMMITS_PATH, currHead.getID());
-        newCommitFile.createNewFile();
-        Utils.writeObject(newCommitFile, currHead);
     }
 
-    /** Prints out the text file which as been tracking every commit and merge
-     * inside the current branch.
+    /** Runs the daemon for this repository, or with --stop stops it.
+     * @param args - the command and its optional --stop operand
      */
-    static void log() {
-        checkgit("log");
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        File currLog = new File(LOGS_PATH, String.format("%s.txt",
-                currBranch.getName()));
-        System.out.println(Utils.readContentsAsString(currLog));
+    static void daemon(String... args) {
+        checkgit(args[0]);
+        if (args.length == 1) {
+            Daemon.serve();
+        } else if (args.length == 2 && args[1].equals("--stop")) {
+            if (Client.send(args) < 0) {
+                throw Utils.error("No daemon is running.");
+            }
+        } else {
+            throw Utils.error("Incorrect operands.");
+        }
     }
 
     /** Stages the specified file for removal.
@@ -247,31 +439,20 @@ public class Main {
      */
     static void rm(String args) throws IOException {
         checkgit("rm");
-        Branch targetBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        Commit headComm = targetBranch.getHEAD();
-        HashMap<String, Blob> tracking = headComm.getTracking();
-        File checkAdd = new File(ADD_PATH, args);
-        File remove = new File(REMOVAL_PATH, args);
-        File currFile = new File(args);
-        int removals = 0;
-        if (checkAdd.exists()) {
-            checkAdd.delete();
-            removals++;
-        }
-        if (tracking != null && tracking.containsKey(args)) {
-            currFile.delete();
-            File removeAdd = new File(REMOVED_PATH, args);
-            removeAdd.createNewFile();
-            Utils.writeContents(removeAdd, tracking.get(args).getContents());
-            tracking.remove(args);
-            removals++;
-        }
-        remove.createNewFile();
-        if (removals == 0) {
-            System.out.println("No reason to remove the file.");
-            exit(0);
+        String path = repoPath(args);
+        if (path != null) {
+            args = path;
         }
+        Branch targetBranch = Branch.current();
+        Commit headComm = targetBranch.getHEAD();
+        Index index = Index.get();
+        if (headComm.getTree().lookup(args) != null) {
+            deleteFile(args);
+        } else if (!index.contains(args)) {
+            throw Utils.error("No reason to remove the file.");
+        }
+        index.remove(args);
+        index.write();
     }
 
     /** Has three orders of function. Checkout can be called on
@@ -287,110 +468,125 @@ public class Main {
      */
     static void checkout(String... args) throws IOException {
         checkgit(args[0]);
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        List<String> unFollows = Utils.plainFilenamesIn(
-                new File(NOTFOLLOW_PATH));
+        Branch currBranch = Branch.current();
         switch (args.length) {
         case 3:
             if (!args[1].equals("--")) {
-                System.out.println("Incorrect operands.");
-                exit(0);
+                throw Utils.error("Incorrect operands.");
             }
-            HashMap<String, Blob> track = currBranch.getHEAD().getTracking();
-            if (!track.containsKey(args[2])) {
-                System.out.println("File does not exist in that commit.");
-                exit(0);
+            String blob = currBranch.getHEAD().getTree().lookup(args[2]);
+            if (blob == null) {
+                throw Utils.error("File does not exist in that commit.");
             }
-            Utils.writeContents(new File(args[2]),
-                    track.get(args[2]).getContents());
+            Blob.copyTo(blob, new File(args[2]));
             break;
         case 4:
             String commID = args[1];
             if (!args[2].equals("--")) {
-                System.out.println("Incorrect operands.");
-                exit(0);
+                throw Utils.error("Incorrect operands.");
             }
-            if (findLong(commID) == null) {
-                System.out.println("No commit with that id exists.");
-                exit(0);
-            } else {
-                commID = findLong(commID);
+            commID = findLong(commID);
+            if (commID == null) {
+                throw Utils.error("No commit with that id exists.");
             }
             checkoutFour(commID, args[3]);
             break;
         case 2:
             if (currBranch.getName().equals(args[1])) {
-                System.out.println("No need to checkout the current branch.");
-                exit(0);
-            } else if (!unFollows.contains(args[1])) {
-                System.out.println("No such branch exists.");
-                exit(0);
+                throw Utils.error("No need to checkout the current branch.");
+            } else if (!Branch.exists(args[1])) {
+                throw Utils.error("No such branch exists.");
             } else {
                 checkoutBranch(currBranch, args[1]);
             }
             break;
         default:
-            System.out.println("Command not recognized.");
-            exit(0);
+            throw Utils.error("Command not recognized.");
         }
     }
 
 
-    /** Searches for the commit with the specified message.
-     * @param message - the specified message
+    /** Searches the message index for the commits with the specified
+     * message, or with a message matching a regular expression when
+     * called as find --grep PATTERN.
+     * @param args - the command and the specified message or pattern
      */
-    static void find(String message) {
-        checkgit("find");
-        int track = 0;
-        List<String> allIDS = Utils.plainFilenamesIn(COMMITS_PATH);
-        for (String id : allIDS) {
-            Commit assessed = Utils.readObject(new File(COMMITS_PATH, id),
-                    Commit.class);
-            if (assessed.getMessage().equals(message)) {
-                System.out.println(id);
-                track++;
+    static void find(String... args) {
+        checkgit(args[0]);
+        MessageIndex messages = new MessageIndex();
+        List<String> found;
+        if (args.length == 3 && args[1].equals("--grep")) {
+            try {
+                found = messages.grep(Pattern.compile(args[2]));
+            } catch (PatternSyntaxException excp) {
+                throw Utils.error("Invalid pattern.");
             }
+        } else if (args.length == 2) {
+            found = messages.find(args[1]);
+        } else {
+            throw Utils.error("Incorrect operands.");
         }
-        if (track == 0) {
-            System.out.println("Found no commit with that message.");
-            exit(0);
+        for (String id : found) {
+            System.out.println(id);
+        }
+        if (found.isEmpty()) {
+            throw Utils.error("Found no commit with that message.");
         }
     }
 
     /** Shows the status of the .gitlet repository as it stands in the
-     * current branch.
+     * current branch, scanning the working directory in parallel for
+     * changed and untracked files. With --timing, also reports how
+     * long the scan took on the standard error.
+     * @param args - the command and its optional --timing operand
      */
-    static void status() {
+    static void status(String... args) {
         checkgit("status");
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        File notFollow = new File(NOTFOLLOW_PATH);
-        List<String> branchNames = Utils.plainFilenamesIn(notFollow);
+        boolean timing = args.length == 2 && args[1].equals("--timing");
+        if (args.length > 1 && !timing) {
+            throw Utils.error("Incorrect operands.");
+        }
+        Branch currBranch = Branch.current();
         String first = String.format("=== Branches ===%n*%s",
                 currBranch.getName());
-        for (String branch : branchNames) {
-            first = String.format("%s%n%s", first, branch);
+        for (String branch : Branch.names()) {
+            if (!branch.equals(currBranch.getName())) {
+                first = String.format("%s%n%s", first, branch);
+            }
         }
-        File addFile = new File(ADD_PATH);
-        List<String> addFiles = Utils.plainFilenamesIn(addFile);
-        Collections.sort(addFiles);
+        TreeMap<String, String[]> staged = Tree.diff(
+                currBranch.getHEAD().getTree(),
+                Index.get().getTree());
         String second = "=== Staged Files ===";
-        for (String file : addFiles) {
-            second = String.format("%s%n%s", second, file);
-        }
-        List<String> remList = Utils.plainFilenamesIn(
-                new File(REMOVED_PATH));
         String third = "=== Removed Files ===";
-        for (String file : remList) {
-            third = String.format("%s%n%s", third, file);
-            File update = new File(REMOVED_PATH, file);
-            update.delete();
+        for (Map.Entry<String, String[]> entry : staged.entrySet()) {
+            if (entry.getValue()[1] != null) {
+                second = String.format("%s%n%s", second, entry.getKey());
+            } else {
+                third = String.format("%s%n%s", third, entry.getKey());
+            }
         }
+        int threads = Config.getInt("status.threads",
+                Runtime.getRuntime().availableProcessors());
+        WorkTree work = new WorkTree(Index.get(), threads);
         String fourth = "=== Modifications Not Staged For Commit ===";
+        for (Map.Entry<String, String> entry
+                 : work.getModified().entrySet()) {
+            fourth = String.format("%s%n%s (%s)", fourth, entry.getKey(),
+                    entry.getValue());
+        }
         String fifth = "=== Untracked Files ===";
+        for (String file : work.getUntracked()) {
+            fifth = String.format("%s%n%s", fifth, file);
+        }
+        if (work.refreshedIndex()) {
+            Index.get().write();
+        }
         System.out.println(String.format("%s%n%n%s%n%n%s%n%n%s%n%n%s%n",
                 first, second, third, fourth, fifth));
+        if (timing) {
+            System.err.println(work.timing(threads));
+        }
     }
 
     /** Creates a new branch with specified name and takes
@@ -399,27 +595,13 @@ public class Main {
      */
     static void branch(String... args) throws IOException {
         checkgit(args[0]);
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        List<String> notFollows = Utils.plainFilenamesIn(
-                new File(NOTFOLLOW_PATH));
-        String currLog = Utils.readContentsAsString(new File(LOGS_PATH,
-                String.format("%s.txt", currBranch.getName())));
-        if (args[1].equals(currBranch.getName())
-                || notFollows.contains(args[1])) {
-            System.out.println("A branch with that name already exists.");
-            exit(0);
+        Branch currBranch = Branch.current();
+        if (Branch.exists(args[1])) {
+            throw Utils.error("A branch with that name already exists.");
         } else {
-            Commit newHead = new Commit(null, null, null, null);
-            newHead.copyFrom(currBranch.getHEAD());
-            Branch newBranch = new Branch(args[1], newHead);
-            File branchFile = new File(NOTFOLLOW_PATH, newBranch.getName());
-            File newLog = new File(LOGS_PATH, String.format("%s.txt",
-                    newBranch.getName()));
-            branchFile.createNewFile();
-            newLog.createNewFile();
-            Utils.writeObject(branchFile, newBranch);
-            Utils.writeContents(newLog, currLog);
+            Transaction tx = Transaction.begin();
+            new Branch(args[1], currBranch.getHeadID()).write(tx);
+            tx.commit();
         }
     }
 
@@ -428,20 +610,17 @@ public class Main {
      */
     static void rmbranch(String... args) {
         checkgit(args[0]);
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
+        Branch currBranch = Branch.current();
         if (args[1].equals(currBranch.getName())) {
-            System.out.println("Cannot remove the current branch.");
-            exit(0);
+            throw Utils.error("Cannot remove the current branch.");
         } else {
-            List<String> notFollows = Utils.plainFilenamesIn(new
-                    File(NOTFOLLOW_PATH));
-            if (!notFollows.contains(args[1])) {
-                System.out.println("A branch with that name does not exist.");
-                exit(0);
+            Branch target = Branch.read(args[1]);
+            if (target == null) {
+                throw Utils.error("A branch with that name does not exist.");
             }
-            File targetBranch = new File(NOTFOLLOW_PATH, args[1]);
-            targetBranch.delete();
+            Transaction tx = Transaction.begin();
+            target.delete(tx);
+            tx.commit();
         }
     }
 
@@ -454,45 +633,17 @@ public class Main {
      */
     static void reset(String args) throws IOException {
         checkgit("reset");
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        HashMap<String, Blob> tracked = currBranch.getHEAD().getTracking();
-        if (findLong(args) == null) {
-            System.out.println("No commit with that ID exists.");
-            exit(0);
-        } else {
-            args = findLong(args);
-        }
-        if (!untrackedID(args)) {
-            exit(0);
-        }
-        Commit targetComm = Utils.readObject(new File(COMMITS_PATH, args),
-                Commit.class);
-        if (targetComm.getTracking() != null) {
-            for (String file : targetComm.getTracking().keySet()) {
-                checkout("checkout", String.format("%s",
-                        targetComm.getID()), "--", file);
-            }
-            for (String file : tracked.keySet()) {
-                if (!(targetComm.getTracking().keySet().contains(file))) {
-                    File goner = new File(file);
-                    goner.delete();
-                }
-            }
-        }
-        Commit clone = cloneCommit(targetComm);
-        String contents = "";
-        while (clone != null) {
-            contents = String.format("%s===%n%s %s%nDate: %s%n%s%n%n",
-                    contents, "commit", clone.getID(), clone.getTimeStamp(),
-                    clone.getMessage());
-            clone = clone.getParent();
-        }
-        Utils.writeContents(new File(LOGS_PATH, String.format("%s.txt",
-                currBranch.getName())), contents);
+        Branch currBranch = Branch.current();
+        args = findLong(args);
+        if (args == null) {
+            throw Utils.error("No commit with that ID exists.");
+        }
+        Commit targetComm = Commit.read(args);
+        Transaction tx = Transaction.begin();
+        switchTo(currBranch.getHEAD(), targetComm, tx);
         currBranch.setHEAD(targetComm);
-        clearStage();
-        Utils.writeObject(new File(FOLLOW_PATH), currBranch);
+        currBranch.write(tx);
+        tx.commit();
     }
 
     /** Merges the files of the branch specified and the current branch
@@ -502,51 +653,57 @@ public class Main {
     static void merge(String... args) throws IOException {
         checkgit(args[0]);
         int mods = 0;
-        Branch currB = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        List<String> addList = Utils.plainFilenamesIn(new File(ADD_PATH));
-        List<String> remList = Utils.plainFilenamesIn(new File(REMOVAL_PATH));
-        if (!addList.isEmpty() || !remList.isEmpty()) {
-            System.out.println("You have uncommitted changes.");
-            exit(0);
+        Branch currB = Branch.current();
+        String staged = Index.get().getTree().getID();
+        if (!staged.equals(currB.getHEAD().getTreeID())) {
+            throw Utils.error("You have uncommitted changes.");
         }
         if (currB.getName().equals(args[1])) {
-            System.out.println("Cannot merge a branch with itself.");
-            exit(0);
-        } else if (!new File(NOTFOLLOW_PATH, args[1]).exists()) {
-            System.out.println("A branch with that name does not exist.");
-            exit(0);
+            throw Utils.error("Cannot merge a branch with itself.");
         }
-        Branch given = Utils.readObject(new File(NOTFOLLOW_PATH, args[1]),
-                Branch.class);
-        HashMap<String, Blob> currT = currB.getHEAD().getTracking();
-        HashMap<String, Blob> givenT = given.getHEAD().getTracking();
-        Commit split = findSplit(currB, given);
-        HashMap<String, Blob> splitT = split.getTracking();
-        if (!checkingForUntracked(currB, given)) {
-            exit(0);
+        Branch given = Branch.read(args[1]);
+        if (given == null) {
+            throw Utils.error("A branch with that name does not exist.");
         }
-        if (split.getID().equals(given.getHEAD().getID())) {
-            System.out.println("Given branch is an ancestor "
+        Commit split = findSplit(currB, given);
+        checkingForUntracked(currB, given);
+        if (split.getID().equals(given.getHeadID())) {
+            throw Utils.error("Given branch is an ancestor "
                     + "of the current branch.");
-            exit(0);
-        } else if (split.getID().equals(currB.getHEAD().getID())) {
-            checkout("%s %s", "checkout", given.getName());
+        } else if (split.getID().equals(currB.getHeadID())) {
+            reset(given.getHeadID());
             System.out.println("Current branch fast-forwarded.");
-            exit(0);
+            return;
         } else {
-            List<String> allFiles = makeAll(currT, givenT, splitT);
-            for (String file : allFiles) {
+            TreeMap<String, String[]> changed = Tree.diff3(split.getTree(),
+                    currB.getHEAD().getTree(), given.getHEAD().getTree());
+            HashMap<String, String> splitT = new HashMap<>();
+            HashMap<String, String> currT = new HashMap<>();
+            HashMap<String, String> givenT = new HashMap<>();
+            for (Map.Entry<String, String[]> entry : changed.entrySet()) {
+                String file = entry.getKey();
+                String[] ids = entry.getValue();
+                if (ids[0] != null) {
+                    splitT.put(file, ids[0]);
+                }
+                if (ids[1] != null) {
+                    currT.put(file, ids[1]);
+                }
+                if (ids[2] != null) {
+                    givenT.put(file, ids[2]);
+                }
+            }
+            for (String file : changed.keySet()) {
                 if (splitT.containsKey(file)) {
-                    mods += atSplit(currT, givenT, splitT, file, given);
+                    mods += atSplit(currT, givenT, splitT, file);
                 } else {
-                    mods += notAtSplit(currT, givenT, file, args[1]);
+                    mods += notAtSplit(currT, givenT, file);
                 }
             }
         }
         String msg = String.format("Merged %s into %s.", given.getName(),
                             currB.getName());
-        commit(msg);
+        commit(msg, given.getHeadID());
         if (mods > 0) {
             System.out.println("Encountered a merge conflict.");
         }
@@ -558,29 +715,27 @@ public class Main {
      * @param givenT - the files being tracked by the given branch
      * @param splitT - the files being tracked at the split point
      * @param file - the file being assessed
-     * @param name - the given branch
      * @return a number denoting whether or not a merge conflict arose
      * @throws IOException
      */
-    static int atSplit(HashMap<String, Blob> currT,
-                       HashMap<String, Blob> givenT,
-                       HashMap<String, Blob> splitT,
-                       String file, Branch name) throws IOException {
-        String splitCont = splitT.get(file).getContents();
+    static int atSplit(HashMap<String, String> currT,
+                       HashMap<String, String> givenT,
+                       HashMap<String, String> splitT,
+                       String file) throws IOException {
+        String splitCont = splitT.get(file);
         if (currT.containsKey(file) && givenT.containsKey(file)) {
-            String currCont = currT.get(file).getContents();
-            String giveCont = givenT.get(file).getContents();
+            String currCont = currT.get(file);
+            String giveCont = givenT.get(file);
             if (splitCont.compareTo(giveCont) != 0
                     && splitCont.compareTo(currCont) == 0) {
-                checkout("checkout", name.getHEAD().getID(),
-                        "--", file);
+                Blob.copyTo(giveCont, new File(file));
+                Index.get().update(file, giveCont, new File(file));
             } else if (splitCont.compareTo(giveCont) != 0
                     && splitCont.compareTo(currCont) != 0) {
-                mergeConflict(file, currT, givenT);
-                return 1;
+                return mergeFile(file, splitCont, currT, givenT);
             }
         } else if (currT.containsKey(file)) {
-            String currCont = currT.get(file).getContents();
+            String currCont = currT.get(file);
             if (splitCont.compareTo(currCont) == 0) {
                 rm(file);
             } else {
@@ -588,7 +743,7 @@ public class Main {
                 return 1;
             }
         } else {
-            String givenCont = givenT.get(file).getContents();
+            String givenCont = givenT.get(file);
             if (splitCont.compareTo(givenCont) != 0) {
                 mergeConflict(file, currT, givenT);
                 return 1;
@@ -597,102 +752,33 @@ public class Main {
         return 0;
     }
 
-    /** Makes a list from all files being tracked by the a current
-     * branch, a merged branch, their split point, and the files in the
-     * CWD.
-     * @param currT - files being tracked in the current branch
-     * @param givenT - files being tracked in the given branch
-     * @param splitT - files being tracked at the split point
-     * @return list of all files being tracked and in CWD
-     */
-    static List<String> makeAll(HashMap<String, Blob> currT,
-                             HashMap<String, Blob> givenT,
-                                HashMap<String, Blob> splitT) {
-        List<String> allFiles = new ArrayList<>();
-        for (String file : currT.keySet()) {
-            if (!allFiles.contains(file)) {
-                allFiles.add(file);
-            }
-        }
-        for (String file : givenT.keySet()) {
-            if (!allFiles.contains(file)) {
-                allFiles.add(file);
-            }
-        }
-        for (String file : splitT.keySet()) {
-            if (!allFiles.contains(file)) {
-                allFiles.add(file);
-            }
-        }
-        for (String file : Utils.plainFilenamesIn(new File("."))) {
-            if (!allFiles.contains(file)) {
-                allFiles.add(file);
-            }
-        }
-        return allFiles;
-    }
-
     /** Carries out appropriate operations when the file during a merge
      * is not at the split point.
      * @param currT - files being tracked in the current Branch
      * @param givenT - files being tracked in the given branch
      * @param file - the file being assessed
-     * @param name - the name of the given branch
      * @return a number which will then be added to mods
      * @throws IOException
      */
-    static int notAtSplit(HashMap<String, Blob> currT,
-                       HashMap<String, Blob> givenT, String file,
-                           String name)
+    static int notAtSplit(HashMap<String, String> currT,
+                       HashMap<String, String> givenT, String file)
             throws IOException {
-        Branch currB = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        Branch given = Utils.readObject(new File(NOTFOLLOW_PATH, name),
-                Branch.class);
         if (givenT.containsKey(file) && currT.containsKey(file)) {
-            String currCont = currT.get(file).getContents();
-            String giveCont = givenT.get(file).getContents();
+            String currCont = currT.get(file);
+            String giveCont = givenT.get(file);
             if (currCont.compareTo(giveCont) != 0) {
-                System.out.println(file);
-                mergeConflict(file, currT, givenT);
-                return 1;
+                return mergeFile(file, null, currT, givenT);
             }
         } else if (givenT.containsKey(file)
                 && !currT.containsKey(file)) {
-            branchSwap(currB, given);
-            checkout("checkout", "--", file);
-            File staged = new File(ADD_PATH, file);
-            staged.createNewFile();
-            branchSwap(given, currB);
+            File staged = new File(file);
+            Blob.copyTo(givenT.get(file), staged);
+            Index.get().update(file, givenT.get(file), staged);
             return 0;
         }
         return 0;
     }
 
-    /** Updates the global log accordingly.
-     * @param global - the previous global-log we are updating
-     * @param curr - the current commit to which we are updating
-     * the global-log with
-     * @return the updated global-log text
-     */
-    static String globalUpdate(String global, Commit curr) {
-        return String.format("===%ncommit %s%nDate: %s%n%s%n%n%s",
-                curr.getID(), curr.getTimeStamp(), curr.getMessage(),
-                global);
-    }
-
-    /** Updates the log of the current branch accordingly.
-     * @param log - the previous log we are adding to
-     * @param curr - the current commit to which we are updating
-     * the log with
-     * @return the updated log text
-     */
-    static String logUpdate(String log, Commit curr) {
-        return String.format("===%ncommit %s%nDate: %s%n%s%n%n%s",
-                curr.getID(), curr.getTimeStamp(), curr.getMessage(),
-                log);
-    }
-
     /** Carries out appropriate actions when checking out a commitID
      * and file.
      * @param commID - the commitID of the commit being investigated
@@ -701,19 +787,12 @@ public class Main {
      */
     static void checkoutFour(String commID, String fileName)
             throws IOException {
-        Commit targetComm = Utils.readObject(new File(COMMITS_PATH, commID),
-                Commit.class);
-        HashMap<String, Blob> targTrack = targetComm.getTracking();
-        if (targTrack.containsKey(fileName)) {
-            File currFile = new File(fileName);
-            if (!currFile.exists()) {
-                currFile.createNewFile();
-            }
-            Utils.writeContents(currFile,
-                    targTrack.get(fileName).getContents());
+        Commit targetComm = Commit.read(commID);
+        String blob = targetComm.getTree().lookup(fileName);
+        if (blob != null) {
+            Blob.copyTo(blob, new File(fileName));
         } else {
-            System.out.println("File does not exist in that commit.");
-            exit(0);
+            throw Utils.error("File does not exist in that commit.");
         }
     }
 
@@ -722,54 +801,80 @@ public class Main {
      * @param name - the name of the branch being checked out
      */
     static void checkoutBranch(Branch curr, String name) throws IOException {
-        HashMap<String, Blob> currTrack = curr.getHEAD().getTracking();
-        Branch target = Utils.readObject(new File(NOTFOLLOW_PATH,
-                    name), Branch.class);
-        if (!checkingForUntracked(curr, target)) {
-            exit(0);
+        Branch target = Branch.read(name);
+        Transaction tx = Transaction.begin();
+        switchTo(curr.getHEAD(), target.getHEAD(), tx);
+        target.makeCurrent(tx);
+        tx.commit();
+    }
+
+    /** Moves the working directory and the index from one commit to
+     * another using the differences of their trees. Only the files
+     * whose blob IDs differ are deleted, and then written concurrently
+     * by a Materializer, and directories with equal trees are skipped
+     * without being read. The staging area is cleared, and the index
+     * keeps the stat data of every file that was not touched. With the
+     * core.verbose setting, reports how many files were written,
+     * skipped and deleted. The working files are written right away,
+     * but the index only when TX commits, along with the ref moved.
+     * @param from - the commit the working directory is at
+     * @param to - the commit to move to
+     * @param tx - the transaction the index is written in
+     */
+    static void switchTo(Commit from, Commit to, Transaction tx) {
+        TreeMap<String, String[]> changes = Tree.diff(from.getTree(),
+                to.getTree());
+        untracked(changes);
+        Index index = Index.get();
+        int written = 0;
+        int deleted = 0;
+        for (Map.Entry<String, String[]> entry : changes.entrySet()) {
+            if (entry.getValue()[1] == null) {
+                deleteFile(entry.getKey());
+                deleted++;
+            }
         }
-        HashMap<String, Blob> tracking = target.getHEAD().getTracking();
-        if (tracking != null) {
-            for (String file : tracking.keySet()) {
-                File currFile = new File(file);
-                if (!currFile.exists()) {
-                    currFile.createNewFile();
+        try (Materializer out = new Materializer()) {
+            for (Map.Entry<String, String[]> entry : changes.entrySet()) {
+                if (entry.getValue()[1] != null) {
+                    out.write(entry.getValue()[1], new File(entry.getKey()));
+                    written++;
                 }
-                Utils.writeContents(currFile, tracking.get(file).getContents());
             }
-            for (String file : currTrack.keySet()) {
-                if (!tracking.containsKey(file)) {
-                    File goner = new File(file);
-                    goner.delete();
-                }
+            out.finish();
+        }
+        for (Map.Entry<String, String[]> entry : changes.entrySet()) {
+            String blob = entry.getValue()[1];
+            if (blob != null) {
+                index.update(entry.getKey(), blob, new File(entry.getKey()));
             }
-        } else if (currTrack != null) {
-            for (String file : currTrack.keySet()) {
-                File goner = new File(file);
-                goner.delete();
+        }
+        for (Map.Entry<String, String[]> entry
+                 : Tree.diff(index.getTree(), to.getTree()).entrySet()) {
+            String blob = entry.getValue()[1];
+            if (blob == null) {
+                index.remove(entry.getKey());
+            } else {
+                index.stage(entry.getKey(), blob);
             }
         }
-        branchSwap(curr, target);
-        clearStage();
+        index.write(tx);
+        if (Config.getBoolean("core.verbose", false)) {
+            System.err.printf("Wrote %d files, skipped %d, deleted %d.%n",
+                    written, index.size() - written, deleted);
+        }
     }
 
     /** Used in the case of short ID data input.
-     * Searches for the commit with the ID whos first
+     * Searches the commit index for the commit with the ID whos first
      * n (length of input id) characters matches the input
      * abbreviated ID.
      * @param id - the abbreviated ID
      * @return the associated 40-character sha1-hash of the
-     * abbreviated ID.
+     * abbreviated ID, or null if no commit has such an ID.
      */
     static String findLong(String id) {
-        List<String> commitList = Utils.plainFilenamesIn(
-                new File(COMMITS_PATH));
-        for (String file : commitList) {
-            if (file.substring(0, id.length()).equals(id)) {
-                return file;
-            }
-        }
-        return null;
+        return CommitIndex.get().resolve(id);
     }
 
     /** Checks to make sure the .gitlet directory is appropriate
@@ -779,143 +884,57 @@ public class Main {
     static void checkgit(String command) {
         if (command.equals("init")) {
             if (new File(".gitlet").exists()) {
-                System.out.println("A Gitlet version-control system already"
+                throw Utils.error("A Gitlet version-control system already"
                         + " exists in the current directory.");
-                exit(0);
             } else {
                 GITLET_DIR.mkdir();
                 File objects = new File(GITLET_DIR, "objects");
                 objects.mkdir();
                 File refs = new File(GITLET_DIR, "refs");
                 refs.mkdir();
-                File index = new File(GITLET_DIR, "index");
-                index.mkdir();
                 File logDir = new File(GITLET_DIR, "logs");
                 logDir.mkdir();
             }
         } else {
             if (!new File(".gitlet").exists()) {
-                System.out.println("Not in an initialized Gitlet directory.");
-                exit(0);
+                throw Utils.error("Not in an initialized Gitlet directory.");
             }
         }
     }
 
     /** Checks for files that could be overwritten in the case of a
-     * checkout.
+     * checkout, failing if there are any.
      * @param current - the current branch
      * @param checked - the branch being checked out
-     * @return whether or not a file will be overwritten or not
-     * as a result of this checkout
      */
-    static Boolean checkingForUntracked(Branch current, Branch checked) {
-        HashMap<String, Blob> currTrack = current.getHEAD().getTracking();
-        HashMap<String, Blob> checkTrack = checked.getHEAD().getTracking();
-        List<String> currFiles = Utils.plainFilenamesIn(new File("."));
-        if (checkTrack == null) {
-            return true;
-        } else if (currTrack == null && !currFiles.isEmpty()) {
-            System.out.println("There is an untracked file in the way; "
-                    + "delete it, or add and commit it first.");
-            return false;
-        } else if (currTrack == null) {
-            return true;
-        } else {
-            for (String file : currFiles) {
-                if (!currTrack.containsKey(file)
-                    && checkTrack.containsKey(file)) {
-                    System.out.println("There is an untracked file in the way; "
-                            + "delete it, or add and commit it first.");
-                    return false;
-                }
-            }
-            return true;
-        }
+    static void checkingForUntracked(Branch current, Branch checked) {
+        untracked(Tree.diff(current.getHEAD().getTree(),
+                checked.getHEAD().getTree()));
     }
 
-    /** Checks for files that could be overwritten in the case of a
-     * reset.
-     * @param id - the commit ID that is being reset
-     * @return whether or not a file will be overwritten or not
-     * as a result of this reset
-     */
-    static Boolean untrackedID(String id) {
-        Branch currBranch = Utils.readObject(new File(FOLLOW_PATH),
-                Branch.class);
-        Commit targetComm = Utils.readObject(new File(COMMITS_PATH, id),
-                Commit.class);
-        HashMap<String, Blob> checkTrack = targetComm.getTracking();
-        HashMap<String, Blob> currTrack = currBranch.getHEAD().getTracking();
-        List<String> currFiles = Utils.plainFilenamesIn(new File("."));
-        if (checkTrack == null) {
-            return true;
-        } else if (currTrack == null && !currFiles.isEmpty()) {
-            System.out.println("There is an untracked file in the way; "
-                    + "delete it, or add and commit it first.");
-            return false;
-        } else if (currTrack == null) {
-            return true;
-        } else {
-            for (String file : currFiles) {
-                if (!currTrack.containsKey(file)
-                        && checkTrack.containsKey(file)) {
-                    System.out.println("There is an untracked file in the way; "
-                            + "delete it, or add and commit it first.");
-                    return false;
-                }
+    /** Checks whether moving between two commits would overwrite a file
+     * in the working directory that the first does not track, failing
+     * if so.
+     * @param changes - the files that differ between the commits, from
+     *                Tree.diff
+     */
+    static void untracked(Map<String, String[]> changes) {
+        for (Map.Entry<String, String[]> entry : changes.entrySet()) {
+            if (entry.getValue()[0] == null
+                    && new File(entry.getKey()).exists()) {
+                throw Utils.error("There is an untracked file in the way; "
+                        + "delete it, or add and commit it first.");
             }
-            return true;
         }
     }
 
-    /** Clears the staging area. */
-    static void clearStage() {
-        List<String> addList = Utils.plainFilenamesIn(
-                new File(ADD_PATH));
-        List<String> remList = Utils.plainFilenamesIn(
-                new File(REMOVAL_PATH));
-        for (String file : addList) {
-            File old = new File(ADD_PATH, file);
-            old.delete();
-        }
-        for (String file : remList) {
-            File old = new File(REMOVAL_PATH, file);
-            old.delete();
-        }
-    }
-
-    /** Swaps the current branch with the specified branch.
-     * @param current - current branch
-     * @param replacer - branch to replace the current
-     */
-    static void branchSwap(Branch current, Branch replacer) throws IOException {
-        File placed = new File(NOTFOLLOW_PATH, current.getName());
-        placed.createNewFile();
-        Utils.writeObject(new File(FOLLOW_PATH), replacer);
-        Utils.writeObject(placed, current);
-        File oldFile = new File(NOTFOLLOW_PATH, replacer.getName());
-        oldFile.delete();
-    }
-
     /** Finds the split point Commit of two branches.
      * @param current - current branch
      * @param given - branch to be merged with
      * @return the latest commit that these two branches have in common
      */
     static Commit findSplit(Branch current, Branch given) {
-        HashMap<String, Blob> backup = new HashMap<>();
-        Commit currHead = cloneCommit(current.getHEAD());
-        while (currHead.getParent() != null) {
-            Commit givenHead = cloneCommit(given.getHEAD());
-            while (givenHead.getParent() != null) {
-                if (currHead.getID().equals(givenHead.getID())) {
-                    return currHead;
-                }
-                givenHead = cloneCommit(givenHead.getParent());
-            }
-            currHead = cloneCommit(currHead.getParent());
-        }
-        return new Commit(null, null, backup, null);
+        return MergeBase.find(current.getHEAD(), given.getHEAD());
     }
 
     /** String concatenator to aid in making file paths with
@@ -932,13 +951,35 @@ public class Main {
         return currDir;
     }
 
-    /** Makes a shallow copy of the given commit.
-     * @param c - the given commit
-     * @return a copy of the given commit
+    /** Merges a file that both branches changed line by line, leaving
+     * conflict markers around only the lines both changed differently,
+     * and stages the result. A binary file cannot be merged by lines,
+     * so it conflicts as a whole.
+     * @param file - name of the file being merged
+     * @param split - the ID of its blob at the split point, or null if
+     *              both branches added it
+     * @param curr - the files being tracked by the current branch's head
+     * commit
+     * @param given - the files being tracked by the given branch's head
+     * commit
+     * @return 1 if any lines conflicted, 0 otherwise
+     * @throws IOException
      */
-    static Commit cloneCommit(Commit c) {
-        return new Commit(c.getTimeStamp(), c.getMessage(),
-                c.getTracking(), c.getParent());
+    static int mergeFile(String file, String split,
+                         HashMap<String, String> curr,
+                         HashMap<String, String> given) throws IOException {
+        byte[] base = split == null ? new byte[0] : Blob.read(split);
+        Merge3 merged = Merge3.merge(base, Blob.read(curr.get(file)),
+                Blob.read(given.get(file)));
+        if (merged == null) {
+            mergeConflict(file, curr, given);
+            return 1;
+        }
+        File workFile = new File(file);
+        workFile.getAbsoluteFile().getParentFile().mkdirs();
+        Utils.writeContents(workFile, merged.getContents());
+        Index.get().add(file, workFile);
+        return merged.getConflicts() > 0 ? 1 : 0;
     }
 
     /** Fills the appropriate contents in the instance of a merge conflict.
@@ -949,84 +990,29 @@ public class Main {
      * commit
      * @throws IOException
      */
-    static void mergeConflict(String file, HashMap<String, Blob> curr,
-                          HashMap<String, Blob> given) throws IOException {
+    static void mergeConflict(String file, HashMap<String, String> curr,
+                          HashMap<String, String> given) throws IOException {
         File workFile = new File(file);
-        if (!workFile.exists()) {
-            workFile.createNewFile();
-        }
-        if (curr.containsKey(file) && given.containsKey(file)) {
-            String currCont = curr.get(file).getContents();
-            String giveCont = given.get(file).getContents();
-            String input = String.format("<<<<<<< HEAD%n%s=======%n%s"
-                    + ">>>>>>>%n", currCont, giveCont);
-            Utils.writeContents(workFile, input);
-        } else if (curr.containsKey(file)) {
-            String currCont = curr.get(file).getContents();
-            String input = String.format("<<<<<<< HEAD%n%s=======%n"
-                    + ">>>>>>>%n", currCont);
-            Utils.writeContents(workFile, input);
-        } else {
-            String giveCont = given.get(file).getContents();
-            String input = String.format("<<<<<<<< HEAD%n=======%n%s"
-                    + ">>>>>>>%n", giveCont);
-            Utils.writeContents(workFile, input);
-        }
+        workFile.getAbsoluteFile().getParentFile().mkdirs();
+        byte[] currCont = new byte[0];
+        byte[] giveCont = new byte[0];
+        if (curr.containsKey(file)) {
+            currCont = Blob.read(curr.get(file));
+        }
+        if (given.containsKey(file)) {
+            giveCont = Blob.read(given.get(file));
+        }
+        Utils.writeContents(workFile, String.format("<<<<<<< HEAD%n"),
+                currCont, String.format("=======%n"), giveCont,
+                String.format(">>>>>>>%n"));
+        Index.get().add(file, workFile);
     }
 
-    /** The date format that is to be used in the log. */
-    static final SimpleDateFormat FORMATTER = new SimpleDateFormat(
-            "EEE MMM dd HH:mm:ss yyyy Z");
-
     /** File path to the logs folder. */
     private static final String LOGS_PATH = ".gitlet" + File.separator
             + "logs";
 
-    /** File path to the index folder. */
-    private static final String INDEX_PATH = ".gitlet" + File.separator
-            + "index";
-
-    /** File path to the objects folder. */
-    private static final String OBJECTS_PATH = ".gitlet" + File.separator
-            + "objects";
-
-    /** File path to the refs folder. */
-    private static final String REFS_PATH = ".gitlet" + File.separator
-            + "refs";
-
-    /** File path to the commits folder. */
-    private static final String COMMITS_PATH = pathMaker(OBJECTS_PATH,
-            "commits");
-
-    /** File path to the follow folder. */
-    private static final String FOLLOW_PATH = pathMaker(REFS_PATH,
-            "following");
-
-    /** File path to the global-path folder. */
+    /** File path to the append-only log of every commit made. */
     private static final String GLOBAL_PATH = pathMaker(LOGS_PATH,
-            "global.txt");
-
-    /** File path to the branch folder containing the branches that
-     * are not the current branch.
-     */
-    private static final String NOTFOLLOW_PATH = pathMaker(REFS_PATH,
-            "not following");
-
-    /** File path to the folder which holds the files that are staged for
-     * addition.
-     */
-    private static final String ADD_PATH = pathMaker(INDEX_PATH,
-            "add");
-
-    /** File path to the folder which holds the files that are staged for
-     * removal.
-     */
-    private static final String REMOVAL_PATH = pathMaker(INDEX_PATH,
-            "removal");
-
-    /** File path to the folder that holds the files which have
-     * been most recently removed prior to a commit.
-     */
-    private static final String REMOVED_PATH = pathMaker(LOGS_PATH,
-            "removed");
+            "global");
 }
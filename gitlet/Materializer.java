@@ -0,0 +1,125 @@
+package gitlet;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/** Writes blobs out to the working directory concurrently. Writing a
+ * file is mostly waiting on the disk and on decompression, so many
+ * files are written at once, each on its own virtual thread where the
+ * Java runtime has them (Java 21 and later) and on a fixed pool of
+ * platform threads otherwise. At most a set number of files are in
+ * flight at any time, from the checkout.threads setting; a parallelism
+ * of 1 writes every file on the calling thread, one at a time. Each
+ * file is written atomically by Blob.copyTo.
+ * @author Ryan Van de Water
+ */
+class Materializer implements AutoCloseable {
+
+    /** Starts a materializer with the configured parallelism. */
+    Materializer() {
+        this(Config.getInt("checkout.threads", DEFAULT_THREADS));
+    }
+
+    /** Starts a materializer.
+     * @param parallelism - the most files to write at once
+     */
+    Materializer(int parallelism) {
+        if (parallelism < 1) {
+            throw Utils.error("Setting checkout.threads must be positive.");
+        }
+        permits = new Semaphore(parallelism);
+        pending = new ArrayList<>();
+        executor = parallelism == 1 ? null : executor(parallelism);
+    }
+
+    /** Schedules a blob to be written to a file.
+     * @param blob - the ID of the blob
+     * @param dest - the file to write
+     */
+    void write(String blob, File dest) {
+        if (executor == null) {
+            Blob.copyTo(blob, dest);
+            return;
+        }
+        permits.acquireUninterruptibly();
+        pending.add(executor.submit(() -> {
+            try {
+                Blob.copyTo(blob, dest);
+            } finally {
+                permits.release();
+            }
+            return null;
+        }));
+    }
+
+    /** Waits until every scheduled file has been written, passing on
+     * the first failure if any write failed. */
+    void finish() {
+        RuntimeException failure = null;
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException excp) {
+                if (failure == null) {
+                    failure = excp.getCause() instanceof RuntimeException
+                        ? (RuntimeException) excp.getCause()
+                        : new IllegalArgumentException(excp.getCause());
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                throw new IllegalArgumentException(excp);
+            }
+        }
+        pending.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /** Makes the executor the files are written on: one virtual thread
+     * per file if the runtime supports them, found reflectively so that
+     * gitlet still builds and runs on Java 17.
+     * @param parallelism - the most files to write at once
+     * @return the executor
+     */
+    private static ExecutorService executor(int parallelism) {
+        try {
+            Method virtual = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "gitlet-checkout");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** The parallelism used when none is configured. */
+    private static final int DEFAULT_THREADS =
+        Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    /** Bounds the number of files in flight. */
+    private final Semaphore permits;
+
+    /** The writes scheduled since the last finish. */
+    private final List<Future<?>> pending;
+
+    /** Where files are written, or null to write them in place. */
+    private final ExecutorService executor;
+}
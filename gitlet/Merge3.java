@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Merges two versions of a text file line by line against the
+ * version they both came from, in the manner of diff3. Each side is
+ * diffed against the base; where only one side changed a region of
+ * the base, its change is taken, and where both sides changed regions
+ * that overlap or touch, the region is a conflict unless both made the
+ * same change. Conflict markers wrap only the conflicting regions:
+ *
+ *     <<<<<<< HEAD
+ *     the current branch's lines
+ *     =======
+ *     the given branch's lines
+ *     >>>>>>>
+ *
+ * @author Ryan Van de Water
+ */
+class Merge3 {
+
+    /** Merges two versions of a file.
+     * @param base - the version at the split point, or an empty array
+     *             if the file was added on both sides
+     * @param ours - the version in the current branch
+     * @param theirs - the version in the given branch
+     * @return the merge, or null if any version is binary and cannot
+     * be merged line by line
+     */
+    static Merge3 merge(byte[] base, byte[] ours, byte[] theirs) {
+        if (Diff.isBinary(base) || Diff.isBinary(ours)
+                || Diff.isBinary(theirs)) {
+            return null;
+        }
+        return new Merge3(Diff.lines(base), Diff.lines(ours),
+                Diff.lines(theirs));
+    }
+
+    /** Merges three versions given as lines.
+     * @param base - the lines of the base
+     * @param ours - the lines of the current branch's version
+     * @param theirs - the lines of the given branch's version
+     */
+    private Merge3(List<String> base, List<String> ours,
+                   List<String> theirs) {
+        int[][] ids = Diff.intern(base, ours, theirs);
+        List<Diff.Hunk> mine = Diff.compute(ids[0], ids[1]);
+        List<Diff.Hunk> yours = Diff.compute(ids[0], ids[2]);
+        result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        int copied = 0;
+        while (i < mine.size() || j < yours.size()) {
+            boolean mineFirst = j == yours.size() || (i < mine.size()
+                    && mine.get(i).aStart <= yours.get(j).aStart);
+            Diff.Hunk first = mineFirst ? mine.get(i) : yours.get(j);
+            int lo = first.aStart;
+            int hi = first.aEnd;
+            int i0 = i;
+            int j0 = j;
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                if (i < mine.size() && mine.get(i).aStart <= hi) {
+                    hi = Math.max(hi, mine.get(i).aEnd);
+                    i++;
+                    grew = true;
+                }
+                if (j < yours.size() && yours.get(j).aStart <= hi) {
+                    hi = Math.max(hi, yours.get(j).aEnd);
+                    j++;
+                    grew = true;
+                }
+            }
+            result.addAll(base.subList(copied, lo));
+            List<String> left = apply(base, ours, mine, i0, i, lo, hi);
+            List<String> right = apply(base, theirs, yours, j0, j, lo, hi);
+            if (i == i0) {
+                result.addAll(right);
+            } else if (j == j0 || left.equals(right)) {
+                result.addAll(left);
+            } else {
+                conflict(left, right);
+            }
+            copied = hi;
+        }
+        result.addAll(base.subList(copied, base.size()));
+    }
+
+    /** Rebuilds one side's version of a region of the base.
+     * @param base - the lines of the base
+     * @param side - the lines of the side
+     * @param hunks - the side's hunks against the base
+     * @param from - the first hunk inside the region
+     * @param to - just past the last hunk inside the region
+     * @param lo - the first line of the region in the base
+     * @param hi - just past the last line of the region in the base
+     * @return the side's lines for the region
+     */
+    private static List<String> apply(List<String> base, List<String> side,
+                                      List<Diff.Hunk> hunks, int from,
+                                      int to, int lo, int hi) {
+        List<String> out = new ArrayList<>();
+        int at = lo;
+        for (int h = from; h < to; h += 1) {
+            Diff.Hunk hunk = hunks.get(h);
+            out.addAll(base.subList(at, hunk.aStart));
+            out.addAll(side.subList(hunk.bStart, hunk.bEnd));
+            at = hunk.aEnd;
+        }
+        out.addAll(base.subList(at, hi));
+        return out;
+    }
+
+    /** Writes a conflict between two versions of a region.
+     * @param left - the current branch's lines
+     * @param right - the given branch's lines
+     */
+    private void conflict(List<String> left, List<String> right) {
+        conflicts++;
+        result.add(String.format("<<<<<<< HEAD%n"));
+        addTerminated(left);
+        result.add(String.format("=======%n"));
+        addTerminated(right);
+        result.add(String.format(">>>>>>>%n"));
+    }
+
+    /** Adds lines to the result, ending the last one with a newline if
+     * it has none, so that a marker after it starts its own line.
+     * @param lines - the lines to add
+     */
+    private void addTerminated(List<String> lines) {
+        result.addAll(lines);
+        int last = result.size() - 1;
+        if (!lines.isEmpty() && !result.get(last).endsWith("\n")) {
+            result.set(last, result.get(last) + System.lineSeparator());
+        }
+    }
+
+    /** Getter method for the merged file.
+     * @return the contents of the merged file, conflict markers and all
+     */
+    byte[] getContents() {
+        return Diff.join(result);
+    }
+
+    /** Getter method for the number of conflicts.
+     * @return how many regions conflicted
+     */
+    int getConflicts() {
+        return conflicts;
+    }
+
+    /** The lines of the merged file. */
+    private final List<String> result;
+
+    /** The number of conflicting regions. */
+    private int conflicts;
+}
@@ -0,0 +1,109 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** Computes the split point (merge base) of two commits. Both commits
+ * "paint" their ancestors while a single queue visits commits from the
+ * highest generation number down, so every commit is visited at most
+ * once and a commit is only reached after all of its descendants in
+ * the walk. A commit painted by both sides is a common ancestor; its
+ * own ancestors are marked stale so that only the best common
+ * ancestors are reported. The walk stops as soon as nothing but stale
+ * commits is left in the queue. Everything the walk needs is in the
+ * commit graph, so no Commit object is read until the answer is known.
+ * @author Ryan Van de Water
+ */
+class MergeBase {
+
+    /** Finds the best common ancestor of two commits.
+     * @param one - the first commit, usually the current branch's head
+     * @param two - the second commit, usually the given branch's head
+     * @return the common ancestor with the highest generation number,
+     * ties going to the most recent one
+     */
+    static Commit find(Commit one, Commit two) {
+        CommitGraph graph = CommitGraph.get();
+        List<Integer> bases = findAll(graph, graph.require(one.getID()),
+                graph.require(two.getID()));
+        if (bases.isEmpty()) {
+            throw Utils.error("Commits %s and %s share no history.",
+                    one.getID(), two.getID());
+        }
+        return Commit.read(graph.getID(bases.get(0)));
+    }
+
+    /** Finds every best common ancestor of two commits, that is, every
+     * common ancestor that is not itself an ancestor of another common
+     * ancestor. There can be several of them after criss-cross merges.
+     * Only the commit graph is consulted.
+     * @param graph - the commit graph of the repository
+     * @param one - the position of the first commit in GRAPH
+     * @param two - the position of the second commit in GRAPH
+     * @return the positions of the best common ancestors, highest
+     * generation first
+     */
+    static List<Integer> findAll(CommitGraph graph, int one, int two) {
+        List<Integer> result = new ArrayList<>();
+        if (one == two) {
+            result.add(one);
+            return result;
+        }
+        int[] flags = new int[graph.size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            Comparator.comparingInt(graph::getGeneration).reversed()
+                .thenComparing(Comparator.comparingLong(graph::getTime)
+                    .reversed()));
+        flags[one] = PARENT1 | QUEUED;
+        flags[two] = PARENT2 | QUEUED;
+        queue.add(one);
+        queue.add(two);
+        int nonStale = 2;
+        while (nonStale > 0) {
+            int c = queue.poll();
+            flags[c] &= ~QUEUED;
+            if ((flags[c] & STALE) == 0) {
+                nonStale--;
+            }
+            int painted = flags[c] & (PARENT1 | PARENT2 | STALE);
+            if (painted == (PARENT1 | PARENT2)) {
+                result.add(c);
+                painted |= STALE;
+            }
+            for (int which = 0; which < 2; which += 1) {
+                int p = graph.getParent(c, which);
+                if (p < 0 || (flags[p] & painted) == painted) {
+                    continue;
+                }
+                int before = flags[p];
+                flags[p] |= painted;
+                if ((before & QUEUED) != 0) {
+                    if ((before & STALE) == 0 && (painted & STALE) != 0) {
+                        nonStale--;
+                    }
+                } else {
+                    flags[p] |= QUEUED;
+                    queue.add(p);
+                    if ((flags[p] & STALE) == 0) {
+                        nonStale++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Marks a commit reachable from the first commit. */
+    private static final int PARENT1 = 1;
+
+    /** Marks a commit reachable from the second commit. */
+    private static final int PARENT2 = 2;
+
+    /** Marks a commit reachable from an already found common ancestor. */
+    private static final int STALE = 4;
+
+    /** Marks a commit that is waiting in the queue. */
+    private static final int QUEUED = 8;
+}
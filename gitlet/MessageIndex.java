@@ -0,0 +1,333 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/** An index of commit messages that find can search without reading a
+ * single Commit object. The messages file is append-only and holds one
+ * record per commit:
+ *
+ *     commit ID   20 bytes
+ *     length       4 bytes
+ *     message     length bytes of UTF-8
+ *
+ * The hash file is a table of the records made before a point in the
+ * messages file, sorted by message hash. After a small header giving
+ * that point, it holds one entry per record:
+ *
+ *     message hash  4 bytes
+ *     offset        4 bytes (where the record starts in the messages
+ *                            file)
+ *
+ * in order of hash, and of offset among equal hashes. The records after
+ * the point form an unsorted tail, like the tail of the CommitIndex: a
+ * new commit only appends its record, and an exact search binary
+ * searches the table, costing O(log N), before comparing the messages
+ * in the tail directly. Once the tail holds more than TAIL_LIMIT
+ * records, or when the repository is repacked, it is folded into the
+ * table by rewriting the hash file. A pattern search decodes every
+ * message in parallel, splitting the records among threads by their
+ * entries in the table.
+ * @author Ryan Van de Water
+ */
+class MessageIndex {
+
+    /** Maps the index of the repository. */
+    MessageIndex() {
+        messages = map(MESSAGES_FILE);
+        hashes = map(HASHES_FILE);
+        if (hashes.capacity() == 0) {
+            covered = 0;
+        } else if (hashes.capacity() < HEADER_SIZE
+                || hashes.getInt(0) != MAGIC
+                || hashes.getInt(4) != VERSION) {
+            throw Utils.error("Unrecognized message index %s.",
+                    HASHES_FILE);
+        } else {
+            covered = hashes.getInt(8);
+        }
+        count = Math.max(0, hashes.capacity() - HEADER_SIZE) / ENTRY_SIZE;
+    }
+
+    /** Records the message of a new commit, folding the tail into the
+     * table if it has grown too long.
+     * @param id - the full ID of the commit
+     * @param message - the commit's message
+     */
+    static void append(String id, String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(ID_SIZE + 4 + text.length);
+        record.put(Utils.fromHex(id)).putInt(text.length).put(text).flip();
+        try (FileChannel channel = FileChannel.open(MESSAGES_FILE.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        MessageIndex index = new MessageIndex();
+        if (index.tail().length > TAIL_LIMIT) {
+            index.fold();
+        }
+    }
+
+    /** Writes the table of every record from scratch, as
+     * Transaction.recover does when the table covers records the
+     * messages file was cut back past. */
+    static void rebuild() {
+        new MessageIndex().write(0, 0);
+    }
+
+    /** Folds the tail, if there is one, into the table. */
+    void fold() {
+        if (covered < messages.capacity()) {
+            write(count, covered);
+        }
+    }
+
+    /** Replaces the hash file with a table of some of the entries of
+     * this one and every record from a point in the messages file on.
+     * @param entries - how many entries of this table to keep
+     * @param from - the offset of the first record to add
+     */
+    private void write(int entries, int from) {
+        int[] added = records(from);
+        long[] keys = new long[entries + added.length];
+        for (int i = 0; i < entries; i += 1) {
+            keys[i] = key(hashAt(i), offsetAt(i));
+        }
+        for (int i = 0; i < added.length; i += 1) {
+            keys[entries + i] = key(Arrays.hashCode(messageAt(added[i])),
+                    added[i]);
+        }
+        Arrays.sort(keys);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE
+                + keys.length * ENTRY_SIZE);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(messages.capacity());
+        for (long k : keys) {
+            buf.putLong(k);
+        }
+        buf.flip();
+        CommitIndex.write(HASHES_FILE, buf);
+    }
+
+    /** Finds the commits with exactly the given message, by binary
+     * search in the table and then by comparing each message in the
+     * tail.
+     * @param message - the message to look for
+     * @return the IDs of the commits, oldest first
+     */
+    List<String> find(String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(text);
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(hash); i < count && hashAt(i) == hash;
+             i += 1) {
+            if (Arrays.equals(text, messageAt(offsetAt(i)))) {
+                result.add(idAt(offsetAt(i)));
+            }
+        }
+        for (int offset : tail()) {
+            if (messages.getInt(offset + ID_SIZE) == text.length
+                    && Arrays.equals(text, messageAt(offset))) {
+                result.add(idAt(offset));
+            }
+        }
+        return result;
+    }
+
+    /** Finds the commits whose messages contain a match for a regular
+     * expression, searching the messages in parallel.
+     * @param pattern - the regular expression
+     * @return the IDs of the commits, oldest first
+     */
+    List<String> grep(Pattern pattern) {
+        return IntStream.concat(IntStream.range(0, count)
+                .map(this::offsetAt), Arrays.stream(tail())).parallel()
+            .filter(offset -> pattern.matcher(new String(messageAt(offset),
+                    StandardCharsets.UTF_8)).find())
+            .sorted()
+            .mapToObj(this::idAt)
+            .collect(Collectors.toList());
+    }
+
+    /** Getter method for the number of messages in the index.
+     * @return the number of commits recorded
+     */
+    int size() {
+        return count + tail().length;
+    }
+
+    /** Getter method for the part of the messages file the table
+     * covers.
+     * @return the offset of the first record in the tail
+     */
+    int covered() {
+        return covered;
+    }
+
+    /** Finds the records of the tail.
+     * @return the offsets of the records, oldest first
+     */
+    private int[] tail() {
+        return records(covered);
+    }
+
+    /** Finds the records from a point in the messages file on, by
+     * walking from one record to the next.
+     * @param from - the offset of the first record
+     * @return the offsets of the records, oldest first
+     */
+    private int[] records(int from) {
+        int n = 0;
+        for (int offset = from; offset < messages.capacity();
+             offset += ID_SIZE + 4 + messages.getInt(offset + ID_SIZE)) {
+            n += 1;
+        }
+        int[] result = new int[n];
+        int offset = from;
+        for (int i = 0; i < n; i += 1) {
+            result[i] = offset;
+            offset += ID_SIZE + 4 + messages.getInt(offset + ID_SIZE);
+        }
+        return result;
+    }
+
+    /** Finds the first entry of the table whose hash is not less than
+     * the given one.
+     * @param hash - the message hash
+     * @return the index of that entry, or the number of entries if
+     * there is none
+     */
+    private int lowerBound(int hash) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hashAt(mid) < hash) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Getter method for the message hash of an entry of the table.
+     * @param i - the index of the entry
+     * @return the hash
+     */
+    private int hashAt(int i) {
+        return hashes.getInt(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+
+    /** Getter method for the record offset of an entry of the table.
+     * @param i - the index of the entry
+     * @return where the record starts in the messages file
+     */
+    private int offsetAt(int i) {
+        return hashes.getInt(HEADER_SIZE + i * ENTRY_SIZE + 4);
+    }
+
+    /** Packs an entry of the table into a long whose order is the
+     * order of the entries.
+     * @param hash - the message hash
+     * @param offset - where the record starts in the messages file
+     * @return the hash in the high half, the offset in the low half
+     */
+    private static long key(int hash, int offset) {
+        return (long) hash << 32 | offset & 0xffffffffL;
+    }
+
+    /** Reads the message of a record.
+     * @param offset - where the record starts in the messages file
+     * @return the message as UTF-8
+     */
+    private byte[] messageAt(int offset) {
+        int length = messages.getInt(offset + ID_SIZE);
+        byte[] text = new byte[length];
+        ByteBuffer view = messages.duplicate();
+        view.position(offset + ID_SIZE + 4);
+        view.get(text);
+        return text;
+    }
+
+    /** Reads the commit ID of a record.
+     * @param offset - where the record starts in the messages file
+     * @return the full ID of the commit
+     */
+    private String idAt(int offset) {
+        byte[] raw = new byte[ID_SIZE];
+        ByteBuffer view = messages.duplicate();
+        view.position(offset);
+        view.get(raw);
+        return Utils.toHex(raw, 0, ID_SIZE);
+    }
+
+    /** Maps one of the index files into memory.
+     * @param file - the file, which need not exist yet
+     * @return its contents
+     */
+    private static ByteBuffer map(File file) {
+        if (!file.isFile()) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The file of message records. */
+    static final File MESSAGES_FILE = Utils.join(ObjectStore.OBJECTS_DIR,
+            "messages");
+
+    /** The file of the table of message hashes. */
+    static final File HASHES_FILE = Utils.join(ObjectStore.OBJECTS_DIR,
+            "messages.idx");
+
+    /** The size of a raw sha-1 ID in bytes. */
+    private static final int ID_SIZE = CommitGraph.ID_SIZE;
+
+    /** Identifies a message index file: "MIDX". */
+    private static final int MAGIC = 0x4d494458;
+
+    /** The version of the table layout. */
+    private static final int VERSION = 1;
+
+    /** The size of the hash file header in bytes. */
+    private static final int HEADER_SIZE = 12;
+
+    /** The size of one entry of the table in bytes. */
+    private static final int ENTRY_SIZE = 8;
+
+    /** The most records the tail holds before it is folded in. */
+    static final int TAIL_LIMIT = CommitIndex.TAIL_LIMIT;
+
+    /** The contents of the messages file. */
+    private final ByteBuffer messages;
+
+    /** The contents of the hash file. */
+    private final ByteBuffer hashes;
+
+    /** The offset of the first record the table does not cover. */
+    private final int covered;
+
+    /** The number of entries in the table. */
+    private final int count;
+}
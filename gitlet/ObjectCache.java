@@ -0,0 +1,149 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/** Keeps the objects read most recently in memory, by ID, so that
+ * reading the same commit, tree or blob again, later in a command or in
+ * a later command run by the daemon, does not touch the object store.
+ * Since objects never change once written, nothing cached ever goes
+ * stale.
+ *
+ * The cache holds at most the number of mebibytes set as cache.size
+ * (64 by default, 0 to turn it off), counting each object by a rough
+ * estimate of the memory it takes, and evicts the least recently used
+ * objects to make room. Objects larger than an eighth of that are never
+ * cached, so that one huge blob cannot flush everything else.
+ * @author Ryan Van de Water
+ */
+class ObjectCache {
+
+    /** Getter method for the cache of the repository, which is made
+     * the first time it is needed.
+     * @return the cache
+     */
+    static synchronized ObjectCache get() {
+        if (cache == null) {
+            cache = new ObjectCache((long) Config.getInt("cache.size",
+                    DEFAULT_MIB) << 20);
+        }
+        return cache;
+    }
+
+    /** A cache of at most CAPACITY bytes.
+     * @param capacity - the most memory to spend, in bytes
+     */
+    private ObjectCache(long capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(INITIAL_ENTRIES, LOAD_FACTOR, true);
+    }
+
+    /** Looks up an object, counting a hit or a miss.
+     * @param id - the sha-1 hash of the object
+     * @param expected - the class of the object
+     * @param <T> - the type of the object
+     * @return the object, or null if it is not cached
+     */
+    synchronized <T> T lookup(String id, Class<T> expected) {
+        if (capacity == 0) {
+            return null;
+        }
+        Entry e = entries.get(id);
+        if (e == null || !expected.isInstance(e.value)) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return expected.cast(e.value);
+    }
+
+    /** Adds an object, evicting the least recently used ones as needed.
+     * @param id - the sha-1 hash of the object
+     * @param value - the object, which must never be changed
+     * @param size - roughly how many bytes it takes
+     */
+    synchronized void put(String id, Object value, long size) {
+        long weight = size + ENTRY_OVERHEAD;
+        if (weight > capacity / MAX_SHARE) {
+            return;
+        }
+        Entry old = entries.put(id, new Entry(value, weight));
+        used += weight - (old == null ? 0 : old.weight);
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (used > capacity) {
+            used -= eldest.next().weight;
+            eldest.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Describes how well the cache has done so far.
+     * @return the hit, miss and eviction counts and the memory used
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Object cache: %d hits, %d misses,"
+                + " %d evictions, %d objects in %d of %d KiB.", hits,
+                misses, evictions, entries.size(), used >> 10,
+                capacity >> 10);
+    }
+
+    /** A cached object and its weight. */
+    private static class Entry {
+
+        /** An entry for VALUE, counted as WEIGHT bytes.
+         * @param value - the object
+         * @param weight - its size plus the cost of its entry
+         */
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        /** The object. */
+        private final Object value;
+
+        /** The bytes it is counted as. */
+        private final long weight;
+    }
+
+    /** The size of the cache when cache.size is not set, in MiB. */
+    private static final int DEFAULT_MIB = 64;
+
+    /** The bytes counted for each entry on top of its object: its
+     * key, its Entry, its node in the map and the headers of the object
+     * itself. */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    /** The largest object cached, as a fraction of the capacity. */
+    private static final long MAX_SHARE = 8;
+
+    /** The number of entries the map starts with room for. */
+    private static final int INITIAL_ENTRIES = 1024;
+
+    /** The load factor of the map. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** The cache of the repository, once made. */
+    private static ObjectCache cache;
+
+    /** The most bytes the cache counts before evicting. */
+    private final long capacity;
+
+    /** The cached objects by ID, least recently used first. The IDs
+     * are kept as the strings callers already hold, which cache their
+     * hash codes, so that a lookup allocates nothing. */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /** The bytes counted for all cached objects. */
+    private long used;
+
+    /** The number of lookups that found their object. */
+    private long hits;
+
+    /** The number of lookups that did not. */
+    private long misses;
+
+    /** The number of objects evicted to make room. */
+    private long evictions;
+}
@@ -0,0 +1,148 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** The sha-1 hash naming an object, held as its 20 raw bytes packed
+ * into two longs and an int rather than as 40 hexadecimal digits.
+ * ObjectIds are about a third of the size of the equivalent strings,
+ * and compare and hash a word at a time; they sort in the same order as
+ * their hexadecimal forms, which is the order of IDs in packs and in the
+ * commit index.
+ * @author Ryan Van de Water
+ */
+final class ObjectId implements Comparable<ObjectId> {
+
+    /** An ID made of its raw bytes, big-endian.
+     * @param first - bytes 0 to 7
+     * @param second - bytes 8 to 15
+     * @param third - bytes 16 to 19
+     */
+    private ObjectId(long first, long second, int third) {
+        w1 = first;
+        w2 = second;
+        w3 = third;
+    }
+
+    /** Parses an ID.
+     * @param hex - the sha-1 hash, as 40 hexadecimal digits
+     * @return the ID
+     */
+    static ObjectId fromHex(String hex) {
+        if (hex.length() != Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("Not an ID: " + hex);
+        }
+        return new ObjectId(hexWord(hex, 0, 16), hexWord(hex, 16, 16),
+                (int) hexWord(hex, 32, 8));
+    }
+
+    /** Reads an ID from its raw bytes.
+     * @param buf - a buffer holding the ID
+     * @param at - where the ID starts in it
+     * @return the ID
+     */
+    static ObjectId fromRaw(ByteBuffer buf, int at) {
+        return new ObjectId(buf.getLong(at), buf.getLong(at + 8),
+                buf.getInt(at + 16));
+    }
+
+    /** Writes the raw bytes of this ID at the position of a buffer,
+     * moving the position past them.
+     * @param buf - the buffer
+     * @return BUF
+     */
+    ByteBuffer writeTo(ByteBuffer buf) {
+        return buf.putLong(w1).putLong(w2).putInt(w3);
+    }
+
+    /** Getter method for the first byte of this ID, which picks its
+     * slot in a fan-out table.
+     * @return the first byte, from 0 to 255
+     */
+    int firstByte() {
+        return (int) (w1 >>> 56);
+    }
+
+    /** Compares this ID with one stored raw in a buffer.
+     * @param buf - the buffer
+     * @param at - where the other ID starts in it
+     * @return a negative, zero or positive number as the stored ID is
+     * less than, equal to or greater than this one
+     */
+    int compareStored(ByteBuffer buf, int at) {
+        int cmp = Long.compareUnsigned(buf.getLong(at), w1);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(buf.getLong(at + 8), w2);
+        }
+        if (cmp == 0) {
+            cmp = Integer.compareUnsigned(buf.getInt(at + 16), w3);
+        }
+        return cmp;
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        int cmp = Long.compareUnsigned(w1, other.w1);
+        if (cmp == 0) {
+            cmp = Long.compareUnsigned(w2, other.w2);
+        }
+        if (cmp == 0) {
+            cmp = Integer.compareUnsigned(w3, other.w3);
+        }
+        return cmp;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) obj;
+        return w1 == other.w1 && w2 == other.w2 && w3 == other.w3;
+    }
+
+    /** Returns bits of the hash itself, which are already as evenly
+     * spread as any hash code could make them. */
+    @Override
+    public int hashCode() {
+        return (int) (w1 >>> 32);
+    }
+
+    /** Formats this ID.
+     * @return the 40 hexadecimal digits of the ID
+     */
+    @Override
+    public String toString() {
+        byte[] digits = new byte[Utils.UID_LENGTH];
+        Utils.hexWord(w1, digits, 0, 16);
+        Utils.hexWord(w2, digits, 16, 16);
+        Utils.hexWord(w3, digits, 32, 8);
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Parses some hexadecimal digits of an ID.
+     * @param hex - the ID
+     * @param start - the first digit to parse
+     * @param n - how many digits to parse, at most 16
+     * @return their value
+     */
+    private static long hexWord(String hex, int start, int n) {
+        long result = 0;
+        for (int i = start; i < start + n; i += 1) {
+            result = (result << 4) | Utils.hexValue(hex.charAt(i));
+        }
+        return result;
+    }
+
+    /** The number of raw bytes in an ID. */
+    static final int SIZE = 20;
+
+    /** Bytes 0 to 7 of the ID. */
+    private final long w1;
+
+    /** Bytes 8 to 15 of the ID. */
+    private final long w2;
+
+    /** Bytes 16 to 19 of the ID. */
+    private final int w3;
+}
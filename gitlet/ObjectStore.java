@@ -0,0 +1,251 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Function;
+
+/** The content-addressed object database kept under .gitlet/objects.
+ * Every blob, tree and commit is written exactly once, to a file named
+ * by its sha-1 hash inside the folder for its kind of object, and is
+ * only read back when something asks for it by ID.
+ *
+ * Each object file starts with a three-byte header, the letters "gl"
+ * followed by the ID of the Codec its payload is compressed with, and
+ * objects are compressed and decompressed as they stream to and from
+ * their files. Blobs are stored as they are; trees and commits in the
+ * binary format of Encoder. Objects may also be gathered into a Pack by repack;
+ * lookups fall back to the packs whenever there is no loose file.
+ * @author Ryan Van de Water
+ */
+class ObjectStore {
+
+    /** Kind (and folder name) of Blob objects. */
+    static final String BLOBS = "blobs";
+
+    /** Kind (and folder name) of Tree objects. */
+    static final String TREES = "trees";
+
+    /** Kind (and folder name) of Commit objects. */
+    static final String COMMITS = "commits";
+
+    /** Creates the folder for every kind of object. */
+    static void init() {
+        for (String kind : new String[] {BLOBS, TREES, COMMITS}) {
+            new File(OBJECTS_DIR, kind).mkdirs();
+        }
+    }
+
+    /** Returns the file the object with the given ID is stored in.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return the file holding the object
+     */
+    static File file(String kind, String id) {
+        return Utils.join(OBJECTS_DIR, kind, id);
+    }
+
+    /** Checks whether an object is already in the database.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return whether or not the object has been stored
+     */
+    static boolean contains(String kind, String id) {
+        return file(kind, id).isFile() || packOf(kind, id) != null;
+    }
+
+    /** Finds the pack holding an object that is not stored loose.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return the pack, or null if no pack holds the object
+     */
+    static Pack packOf(String kind, String id) {
+        for (Pack pack : packs()) {
+            if (pack.contains(kind, id)) {
+                return pack;
+            }
+        }
+        return null;
+    }
+
+    /** Finds the packs of the repository the first time they are
+     * needed. The threads of a Materializer or a WorkTree scan may all
+     * look for them at once, so they are found under a lock, once, and
+     * published whole through a volatile field.
+     * @return the packs
+     */
+    private static List<Pack> packs() {
+        List<Pack> result = packs;
+        if (result == null) {
+            synchronized (ObjectStore.class) {
+                result = packs;
+                if (result == null) {
+                    result = Pack.all();
+                    packs = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Forgets the packs found so far, so that the next lookup sees the
+     * packs written or removed since. */
+    static void rescan() {
+        packs = null;
+    }
+
+    /** Stores an object under its ID unless it is already there. Since
+     * IDs are hashes of the contents, an existing file never needs to
+     * be rewritten.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @param encoded - the object, in the binary format of Encoder
+     */
+    static void write(String kind, String id, Encoder encoded) {
+        if (contains(kind, id)) {
+            return;
+        }
+        File temp = tempFile(kind);
+        try (OutputStream out = create(temp)) {
+            encoded.writeTo(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        install(temp, kind, id);
+    }
+
+    /** Loads the object with the given ID, from the ObjectCache if it
+     * is there.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @param expected - the class of the object
+     * @param decode - builds the object from its encoding
+     * @param <T> - the type of the object
+     * @return the stored object
+     */
+    static <T> T read(String kind, String id, Class<T> expected,
+                      Function<Decoder, T> decode) {
+        ObjectCache cache = ObjectCache.get();
+        T result = cache.lookup(id, expected);
+        if (result != null) {
+            return result;
+        }
+        try (InputStream in = open(kind, id)) {
+            Decoder encoded = Decoder.fill(in);
+            result = decode.apply(encoded);
+            cache.put(id, result, (long) EXPANSION * encoded.size());
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens the payload of a stored object for reading, decompressing
+     * it on the fly. Loose objects are preferred to packed ones.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return the uncompressed payload
+     */
+    static InputStream open(String kind, String id) {
+        File f = file(kind, id);
+        if (!f.isFile()) {
+            Pack pack = packOf(kind, id);
+            if (pack == null) {
+                throw Utils.error("Missing %s object %s.", kind, id);
+            }
+            return pack.open(kind, id);
+        }
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(f),
+                    BUFFER_SIZE);
+            byte[] header = new byte[MAGIC.length + 1];
+            if (in.read(header) != header.length
+                    || header[0] != MAGIC[0] || header[1] != MAGIC[1]) {
+                in.close();
+                throw Utils.error("Corrupt %s object %s.", kind, id);
+            }
+            return Codec.forID(header[MAGIC.length]).decompress(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Makes a temporary file to write a new object of the given kind
+     * into before its ID is known.
+     * @param kind - the kind of object
+     * @return an empty file in the folder for that kind
+     */
+    static File tempFile(String kind) {
+        try {
+            return File.createTempFile(kind, ".tmp",
+                    new File(OBJECTS_DIR, kind));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens a new object file for writing, with the header of the
+     * configured codec already in place.
+     * @param temp - the file to write, usually from tempFile
+     * @return the stream to write the uncompressed payload to
+     */
+    static OutputStream create(File temp) {
+        Codec codec = Codec.configured();
+        try {
+            OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(temp), BUFFER_SIZE);
+            out.write(MAGIC);
+            out.write(codec.getID());
+            return codec.compress(out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Moves a finished temporary file into place as the object with
+     * the given ID, or throws it away if that object already exists.
+     * The new object file is forced to disk by the next Transaction to
+     * commit.
+     * @param temp - the finished object file
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     */
+    static void install(File temp, String kind, String id) {
+        try {
+            if (contains(kind, id)) {
+                Files.delete(temp.toPath());
+            } else {
+                Files.move(temp.toPath(), file(kind, id).toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+                Transaction.wrote(file(kind, id));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The objects folder of the .gitlet repository. */
+    static final File OBJECTS_DIR = Utils.join(".gitlet", "objects");
+
+    /** The first bytes of every object file. */
+    private static final byte[] MAGIC = {'g', 'l'};
+
+    /** Roughly how many times larger a decoded tree or commit is than
+     * its encoding, mostly since every 20-byte ID becomes a string of
+     * 40 characters with headers of its own. */
+    private static final int EXPANSION = 4;
+
+    /** The size of the buffers between a codec and an object file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The packs of the repository, found on first use. */
+    private static volatile List<Pack> packs;
+}
@@ -0,0 +1,323 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** A pack: many objects stored together in one file, written by
+ * "gitlet repack", along with an index file for finding them. Both
+ * files are read through memory maps.
+ *
+ * The pack file starts with a header (magic number, version, number of
+ * objects) followed by one entry per object:
+ *
+ *     kind           1 byte  (1 blob, 2 tree, 3 commit)
+ *     delta          1 byte  (1 if the payload is a Delta, else 0)
+ *     size           4 bytes (length of the data below once inflated)
+ *     stored size    4 bytes (length of the deflated data below)
+ *     base offset    8 bytes (only for deltas: where the entry of the
+ *                             object the delta applies to starts)
+ *     data           the payload, or the delta, deflated
+ *
+ * The index file has a header (magic number, version, number of
+ * objects), a 256-entry fan-out table like the CommitIndex's, and one
+ * entry per object in ID order: the raw 20-byte ID and the 8-byte
+ * offset of the object's entry in the pack.
+ * @author Ryan Van de Water
+ */
+class Pack {
+
+    /** Maps a pack and its index.
+     * @param packFile - the pack file
+     * @param indexFile - the index of the pack
+     */
+    Pack(File packFile, File indexFile) {
+        pack = map(packFile);
+        index = map(indexFile);
+        if (pack.getInt(0) != PACK_MAGIC || index.getInt(0) != INDEX_MAGIC
+                || pack.getInt(4) != VERSION || index.getInt(4) != VERSION) {
+            throw Utils.error("Unrecognized pack %s.", packFile);
+        }
+        count = index.getInt(8);
+        file = packFile;
+    }
+
+    /** Finds every pack of the repository.
+     * @return the packs, in no particular order
+     */
+    static List<Pack> all() {
+        List<Pack> result = new ArrayList<>();
+        List<String> names = Utils.plainFilenamesIn(PACK_DIR);
+        if (names == null) {
+            return result;
+        }
+        for (String name : names) {
+            if (name.startsWith("pack-") && name.endsWith(".pack")) {
+                String base = name.substring(0, name.length() - 5);
+                result.add(new Pack(new File(PACK_DIR, name),
+                        new File(PACK_DIR, base + ".idx")));
+            }
+        }
+        return result;
+    }
+
+    /** Checks whether this pack holds an object.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return whether or not the object is in this pack
+     */
+    boolean contains(String kind, String id) {
+        long offset = find(id);
+        return offset >= 0 && pack.get((int) offset) == kindCode(kind);
+    }
+
+    /** Opens the payload of an object in this pack.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return the uncompressed payload
+     */
+    InputStream open(String kind, String id) {
+        long offset = find(id);
+        if (offset < 0 || pack.get((int) offset) != kindCode(kind)) {
+            throw Utils.error("Missing %s object %s.", kind, id);
+        }
+        int at = (int) offset;
+        if (pack.get(at + 1) == 0) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(new BufferInput(data(at)),
+                    inflater) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+        return new ByteArrayInputStream(payload(at));
+    }
+
+    /** Reads the IDs of every object in this pack.
+     * @return the IDs, in order
+     */
+    List<ObjectId> ids() {
+        List<ObjectId> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i += 1) {
+            result.add(ObjectId.fromRaw(index, entry(i)));
+        }
+        return result;
+    }
+
+    /** Getter method for the kind of an object in this pack.
+     * @param id - the sha-1 hash of the object
+     * @return the kind of object
+     */
+    String kindOf(ObjectId id) {
+        long offset = find(id);
+        if (offset < 0) {
+            throw Utils.error("Missing object %s.", id);
+        }
+        return KINDS[pack.get((int) offset)];
+    }
+
+    /** Getter method for the pack file.
+     * @return the file this pack was read from
+     */
+    File getFile() {
+        return file;
+    }
+
+    /** Inflates an entry completely, applying its delta if it has one.
+     * @param at - the offset of the entry in the pack
+     * @return the payload of the object
+     */
+    private byte[] payload(int at) {
+        byte[] stored = new byte[pack.getInt(at + 2)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data(at));
+            int n = 0;
+            while (n < stored.length && !inflater.finished()) {
+                n += inflater.inflate(stored, n, stored.length - n);
+            }
+        } catch (DataFormatException excp) {
+            throw Utils.error("Corrupt pack %s.", file);
+        } finally {
+            inflater.end();
+        }
+        if (pack.get(at + 1) == 0) {
+            return stored;
+        }
+        int base = (int) pack.getLong(at + 10);
+        return Delta.apply(payload(base), stored);
+    }
+
+    /** Slices the deflated data out of an entry.
+     * @param at - the offset of the entry in the pack
+     * @return a view of the data
+     */
+    private ByteBuffer data(int at) {
+        boolean delta = pack.get(at + 1) != 0;
+        int start = at + 10 + (delta ? 8 : 0);
+        ByteBuffer view = pack.duplicate();
+        view.position(start).limit(start + pack.getInt(at + 6));
+        return view;
+    }
+
+    /** Looks up an object in the index.
+     * @param id - the sha-1 hash of the object
+     * @return the offset of its entry in the pack, or -1 if it is not
+     * in this pack
+     */
+    private long find(String id) {
+        if (id.length() != Utils.UID_LENGTH) {
+            return -1;
+        }
+        return find(ObjectId.fromHex(id));
+    }
+
+    /** Looks up an object in the index.
+     * @param id - the ID of the object
+     * @return the offset of its entry in the pack, or -1 if it is not
+     * in this pack
+     */
+    private long find(ObjectId id) {
+        int first = id.firstByte();
+        int lo = first == 0 ? 0 : fanout(first - 1);
+        int hi = fanout(first);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = id.compareStored(index, entry(mid));
+            if (cmp == 0) {
+                return index.getLong(entry(mid) + ID_SIZE);
+            } else if (cmp < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Reads the fan-out table of the index.
+     * @param b - a first byte of an ID
+     * @return the number of IDs whose first byte is at most B
+     */
+    private int fanout(int b) {
+        return index.getInt(INDEX_HEADER + 4 * b);
+    }
+
+    /** Computes where an entry starts in the index.
+     * @param i - the index of the entry
+     * @return the byte offset of the entry
+     */
+    private int entry(int i) {
+        return INDEX_HEADER + 4 * FANOUT + i * INDEX_ENTRY;
+    }
+
+    /** Finds the code of a kind of object in pack entries.
+     * @param kind - the kind of object
+     * @return the code
+     */
+    static byte kindCode(String kind) {
+        for (byte code = 1; code < KINDS.length; code += 1) {
+            if (KINDS[code].equals(kind)) {
+                return code;
+            }
+        }
+        throw Utils.error("Unknown object kind %s.", kind);
+    }
+
+    /** Maps a whole file into memory.
+     * @param f - the file
+     * @return its contents
+     */
+    private static MappedByteBuffer map(File f) {
+        try (FileChannel channel = FileChannel.open(f.toPath(),
+                StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** An input stream over the remaining bytes of a buffer, so that
+     * mapped data can be inflated without copying it first. */
+    private static class BufferInput extends InputStream {
+
+        /** A stream over the remaining bytes of BUF.
+         * @param buf - the bytes to read
+         */
+        BufferInput(ByteBuffer buf) {
+            source = buf;
+        }
+
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, source.remaining());
+            source.get(b, off, n);
+            return n;
+        }
+
+        /** The bytes left to read. */
+        private final ByteBuffer source;
+    }
+
+    /** The folder packs are kept in. */
+    static final File PACK_DIR = Utils.join(ObjectStore.OBJECTS_DIR, "pack");
+
+    /** The kinds of objects, indexed by their codes in pack entries. */
+    static final String[] KINDS = {null, ObjectStore.BLOBS,
+        ObjectStore.TREES, ObjectStore.COMMITS};
+
+    /** Identifies a pack file: "PACK". */
+    static final int PACK_MAGIC = 0x5041434b;
+
+    /** Identifies a pack index file: "PIDX". */
+    static final int INDEX_MAGIC = 0x50494458;
+
+    /** The version of the pack and index layouts. */
+    static final int VERSION = 1;
+
+    /** The size of the index header in bytes. */
+    static final int INDEX_HEADER = 12;
+
+    /** The number of entries in the fan-out table. */
+    static final int FANOUT = 256;
+
+    /** The size of a raw sha-1 ID in bytes. */
+    static final int ID_SIZE = CommitGraph.ID_SIZE;
+
+    /** The size of one index entry in bytes. */
+    static final int INDEX_ENTRY = ID_SIZE + 8;
+
+    /** The contents of the pack file. */
+    private final MappedByteBuffer pack;
+
+    /** The contents of the index file. */
+    private final MappedByteBuffer index;
+
+    /** The number of objects in the pack. */
+    private final int count;
+
+    /** The pack file. */
+    private final File file;
+}
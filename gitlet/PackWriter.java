@@ -0,0 +1,370 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/** Gathers every object of the repository into a single new Pack,
+ * storing blobs as deltas against similar blobs where that is smaller.
+ *
+ * Like git, repack does not try every pair of blobs. Blobs are sorted
+ * so that versions of the same file sit next to each other, newest
+ * first, and each blob is only compared with the few blobs before it
+ * in that order. Since newer versions come first, they are the ones
+ * stored whole and quick to read, and the older versions become deltas
+ * against them. Chains of deltas are kept short so that reading an old
+ * version never takes too many steps.
+ * @author Ryan Van de Water
+ */
+class PackWriter {
+
+    /** Repacks the repository: writes one pack holding every object
+     * that is not too large, then, in a Transaction that forces the pack
+     * to disk first, removes the loose files and old packs it replaces.
+     * @return the number of objects packed and how many are deltas
+     */
+    static int[] repack() {
+        TreeMap<ObjectId, String> objects = collect();
+        List<Pack> old = Pack.all();
+        Map<ObjectId, String> names = nameHints();
+        List<ObjectId> order = new ArrayList<>();
+        for (Map.Entry<ObjectId, String> entry : objects.entrySet()) {
+            if (!entry.getValue().equals(ObjectStore.BLOBS)) {
+                order.add(entry.getKey());
+            }
+        }
+        List<ObjectId> blobs = new ArrayList<>();
+        for (ObjectId id : names.keySet()) {
+            if (ObjectStore.BLOBS.equals(objects.get(id))) {
+                blobs.add(id);
+            }
+        }
+        for (Map.Entry<ObjectId, String> entry : objects.entrySet()) {
+            if (entry.getValue().equals(ObjectStore.BLOBS)
+                    && !names.containsKey(entry.getKey())) {
+                blobs.add(entry.getKey());
+            }
+        }
+        blobs.sort(Comparator.comparing((ObjectId id) ->
+                names.getOrDefault(id, "")));
+        order.addAll(blobs);
+
+        PackWriter writer = new PackWriter();
+        File packTemp = temp(".pack");
+        File indexTemp = temp(".idx");
+        int deltas = writer.write(objects, order, packTemp);
+        String name = "pack-" + writer.name();
+        writer.writeIndex(indexTemp);
+        File packFile = new File(Pack.PACK_DIR, name + ".pack");
+        File indexFile = new File(Pack.PACK_DIR, name + ".idx");
+        try {
+            Files.move(indexTemp.toPath(), indexFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.move(packTemp.toPath(), packFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Transaction.wrote(indexFile);
+        Transaction.wrote(packFile);
+        Transaction tx = Transaction.begin();
+        for (ObjectId id : order) {
+            tx.delete(ObjectStore.file(objects.get(id), id.toString()));
+        }
+        for (Pack pack : old) {
+            if (!pack.getFile().equals(packFile)) {
+                String base = pack.getFile().getName();
+                base = base.substring(0, base.length() - ".pack".length());
+                tx.delete(pack.getFile());
+                tx.delete(new File(Pack.PACK_DIR, base + ".idx"));
+            }
+        }
+        tx.commit();
+        ObjectStore.rescan();
+        return new int[] {order.size(), deltas};
+    }
+
+    /** Starts a pack. */
+    private PackWriter() {
+        offsets = new TreeMap<>();
+    }
+
+    /** Writes the pack file.
+     * @param kinds - the kind of every object, by ID
+     * @param order - the IDs of the objects to pack, in the order to
+     *              write them
+     * @param dest - the file to write
+     * @return the number of objects stored as deltas
+     */
+    private int write(Map<ObjectId, String> kinds, List<ObjectId> order,
+                      File dest) {
+        int deltas = 0;
+        ArrayDeque<Candidate> window = new ArrayDeque<>();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(dest),
+                        BUFFER_SIZE))) {
+            out.writeInt(Pack.PACK_MAGIC);
+            out.writeInt(Pack.VERSION);
+            out.writeInt(order.size());
+            long offset = 3 * 4;
+            for (ObjectId id : order) {
+                String kind = kinds.get(id);
+                byte[] payload = read(kind, id.toString());
+                Candidate best = null;
+                byte[] delta = null;
+                if (kind.equals(ObjectStore.BLOBS)) {
+                    for (Candidate c : window) {
+                        if (c.depth >= MAX_DEPTH) {
+                            continue;
+                        }
+                        int limit = delta == null ? payload.length / 2
+                                : delta.length;
+                        byte[] d = Delta.create(c.payload, payload, limit);
+                        if (d != null) {
+                            best = c;
+                            delta = d;
+                        }
+                    }
+                }
+                byte[] data = delta == null ? payload : delta;
+                byte[] deflated = deflate(deflater, data);
+                offsets.put(id, offset);
+                out.writeByte(Pack.kindCode(kind));
+                out.writeByte(delta == null ? 0 : 1);
+                out.writeInt(data.length);
+                out.writeInt(deflated.length);
+                offset += 1 + 1 + 4 + 4;
+                if (delta != null) {
+                    out.writeLong(best.offset);
+                    offset += 8;
+                    deltas++;
+                }
+                out.write(deflated);
+                offset += deflated.length;
+                if (kind.equals(ObjectStore.BLOBS)) {
+                    window.addFirst(new Candidate(payload, offsets.get(id),
+                            best == null ? 0 : best.depth + 1));
+                    if (window.size() > WINDOW) {
+                        window.removeLast();
+                    }
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+        return deltas;
+    }
+
+    /** Writes the index of the pack just written.
+     * @param dest - the file to write
+     */
+    private void writeIndex(File dest) {
+        int[] fanout = new int[Pack.FANOUT];
+        for (ObjectId id : offsets.keySet()) {
+            fanout[id.firstByte()]++;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(Pack.INDEX_HEADER
+                + 4 * Pack.FANOUT + offsets.size() * Pack.INDEX_ENTRY);
+        buf.putInt(Pack.INDEX_MAGIC).putInt(Pack.VERSION);
+        buf.putInt(offsets.size());
+        int total = 0;
+        for (int count : fanout) {
+            total += count;
+            buf.putInt(total);
+        }
+        for (Map.Entry<ObjectId, Long> entry : offsets.entrySet()) {
+            entry.getKey().writeTo(buf).putLong(entry.getValue());
+        }
+        Utils.writeContents(dest, buf.array());
+    }
+
+    /** Names the pack after the objects in it, so that packing the same
+     * objects twice gives the same pack.
+     * @return the sha-1 hash of the sorted IDs of the objects
+     */
+    private String name() {
+        MessageDigest md = Utils.digest();
+        ByteBuffer raw = ByteBuffer.allocate(ObjectId.SIZE);
+        for (ObjectId id : offsets.keySet()) {
+            md.update(id.writeTo(raw.clear()).array());
+        }
+        byte[] digest = md.digest();
+        return Utils.toHex(digest, 0, digest.length);
+    }
+
+    /** Finds every object to pack: the loose objects that are not too
+     * large, and every object of the existing packs.
+     * @return the kind of each object, by ID
+     */
+    private static TreeMap<ObjectId, String> collect() {
+        TreeMap<ObjectId, String> result = new TreeMap<>();
+        for (Pack pack : Pack.all()) {
+            for (ObjectId id : pack.ids()) {
+                result.put(id, pack.kindOf(id));
+            }
+        }
+        for (String kind : Pack.KINDS) {
+            if (kind == null) {
+                continue;
+            }
+            List<String> ids = Utils.plainFilenamesIn(
+                    new File(ObjectStore.OBJECTS_DIR, kind));
+            for (String id : ids == null ? List.<String>of() : ids) {
+                if (id.length() == Utils.UID_LENGTH
+                        && ObjectStore.file(kind, id).length()
+                        <= MAX_OBJECT_SIZE) {
+                    result.put(ObjectId.fromHex(id), kind);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Finds a file name for every blob, walking the commits newest
+     * first, so that blobs can be sorted into versions of the same file.
+     * @return the path of each blob that has one, by blob ID, newest
+     * blobs first
+     */
+    private static Map<ObjectId, String> nameHints() {
+        LinkedHashMap<ObjectId, String> result = new LinkedHashMap<>();
+        HashSet<ObjectId> seenTrees = new HashSet<>();
+        CommitGraph graph = CommitGraph.get();
+        for (int pos = graph.size() - 1; pos >= 0; pos -= 1) {
+            nameHints(graph.getTree(pos), "", seenTrees, result);
+        }
+        return result;
+    }
+
+    /** Names the blobs of one tree and its subtrees, skipping the trees
+     * that were already walked.
+     * @param id - the ID of the tree
+     * @param prefix - the path of its directory
+     * @param seenTrees - the IDs of the trees already walked
+     * @param result - the path of each blob named so far
+     */
+    private static void nameHints(String id, String prefix,
+                                  Set<ObjectId> seenTrees,
+                                  Map<ObjectId, String> result) {
+        if (!seenTrees.add(ObjectId.fromHex(id))) {
+            return;
+        }
+        Tree tree = Tree.read(id);
+        for (Map.Entry<String, String> entry
+                : tree.getEntries().entrySet()) {
+            result.putIfAbsent(ObjectId.fromHex(entry.getValue()),
+                    prefix + entry.getKey());
+        }
+        for (Map.Entry<String, String> entry
+                : tree.getSubtrees().entrySet()) {
+            nameHints(entry.getValue(), prefix + entry.getKey() + "/",
+                    seenTrees, result);
+        }
+    }
+
+    /** Reads the whole payload of an object.
+     * @param kind - the kind of object
+     * @param id - the sha-1 hash of the object
+     * @return its uncompressed payload
+     */
+    private static byte[] read(String kind, String id) {
+        try (InputStream in = ObjectStore.open(kind, id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Deflates some bytes.
+     * @param deflater - the deflater to reuse
+     * @param data - the bytes to compress
+     * @return the compressed bytes
+     */
+    private static byte[] deflate(Deflater deflater, byte[] data) {
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[BUFFER_SIZE];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    /** Makes a temporary file in the pack folder.
+     * @param suffix - the extension of the file
+     * @return the new, empty file
+     */
+    private static File temp(String suffix) {
+        Pack.PACK_DIR.mkdirs();
+        try {
+            return File.createTempFile("tmp-pack", suffix, Pack.PACK_DIR);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** A recently written blob that later blobs may be deltas of. */
+    private static class Candidate {
+
+        /** A blob written at OFFSET, at the end of a delta chain of
+         * length DEPTH.
+         * @param bytes - the payload of the blob
+         * @param at - where its entry starts in the pack
+         * @param chain - how many deltas must be applied to read it
+         */
+        Candidate(byte[] bytes, long at, int chain) {
+            payload = bytes;
+            offset = at;
+            depth = chain;
+        }
+
+        /** The payload of the blob. */
+        private final byte[] payload;
+
+        /** Where the blob's entry starts in the pack. */
+        private final long offset;
+
+        /** How many deltas must be applied to read the blob. */
+        private final int depth;
+    }
+
+    /** How many earlier blobs each blob is compared with. */
+    private static final int WINDOW = 10;
+
+    /** The longest chain of deltas allowed. */
+    private static final int MAX_DEPTH = 10;
+
+    /** Objects stored in files larger than this stay loose, since they
+     * are read through the whole of memory when packed. */
+    private static final long MAX_OBJECT_SIZE = 1 << 24;
+
+    /** The size of the buffers used while writing. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Where each object's entry starts in the pack, by ID. */
+    private final TreeMap<ObjectId, Long> offsets;
+}
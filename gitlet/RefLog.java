@@ -0,0 +1,88 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/** An append-only binary log of commit IDs, like git's reflog. Each
+ * entry is a fixed-size record:
+ *
+ *     commit ID   20 bytes
+ *     logged at    8 bytes (milliseconds since the epoch)
+ *
+ * Adding an entry appends one record without reading the rest of the
+ * file, and the entries are read back in any order through a memory
+ * map, which lets the log be shown newest first a page at a time.
+ * @author Ryan Van de Water
+ */
+class RefLog {
+
+    /** Maps the log stored in the given file.
+     * @param file - the log file, which need not exist yet
+     */
+    RefLog(File file) {
+        if (!file.isFile()) {
+            buffer = ByteBuffer.allocate(0);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Appends an entry for a commit to the end of a log, creating the
+     * log if needed.
+     * @param file - the log file
+     * @param id - the full ID of the commit
+     */
+    static void append(File file, String id) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(Utils.fromHex(id));
+        record.putLong(System.currentTimeMillis());
+        record.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Getter method for the number of entries in the log.
+     * @return the number of records
+     */
+    int size() {
+        return buffer.capacity() / RECORD_SIZE;
+    }
+
+    /** Getter method for the commit of an entry.
+     * @param i - the index of the entry, 0 being the oldest
+     * @return the full ID of the commit
+     */
+    String getID(int i) {
+        byte[] raw = new byte[ID_SIZE];
+        for (int k = 0; k < ID_SIZE; k += 1) {
+            raw[k] = buffer.get(i * RECORD_SIZE + k);
+        }
+        return Utils.toHex(raw, 0, ID_SIZE);
+    }
+
+    /** The size of a raw sha-1 ID in bytes. */
+    private static final int ID_SIZE = CommitGraph.ID_SIZE;
+
+    /** The size of one entry in bytes. */
+    static final int RECORD_SIZE = ID_SIZE + 8;
+
+    /** The contents of the log file. */
+    private final ByteBuffer buffer;
+}
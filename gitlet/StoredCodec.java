@@ -0,0 +1,28 @@
+package gitlet;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** The codec for objects stored without compression.
+ * @author Ryan Van de Water
+ */
+class StoredCodec implements Codec {
+
+    @Override
+    public byte getID() {
+        return ID;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return out;
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        return in;
+    }
+
+    /** The ID of this codec in object headers. */
+    static final byte ID = 0;
+}
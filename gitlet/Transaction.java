@@ -0,0 +1,378 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/** Makes the changes a command makes to the repository all or nothing,
+ * so that a crash part way through leaves the repository as it was
+ * before the command or as it is after it, never in between.
+ *
+ * A command first writes its new objects, which need no undoing: until
+ * a ref names them they are merely unreachable. It then appends to the
+ * commit graph, the message index and the global log, after calling
+ * append() to note how long each file was, and finally stages its ref
+ * and index updates with replace() and delete(), which only write the
+ * new contents to temporary files under .gitlet/txn. commit() then
+ * forces everything written so far to disk, records the staged updates
+ * in the journal, .gitlet/journal, and only then renames the temporary
+ * files into place. The journal holds one line per step:
+ *
+ *     undo LENGTH PATH    (PATH is appended to, and was LENGTH bytes)
+ *     rename TEMP PATH    (TEMP holds the new contents of PATH)
+ *     delete PATH
+ *     commit CRC          (the CRC-32 of the lines above)
+ *
+ * A journal ending in its commit line is replayed by recover(), which
+ * every command runs first; any other journal is undone, cutting the
+ * appended files back to their old lengths. An empty journal means
+ * there is nothing to do.
+ *
+ * Forcing files to disk is the slow part, so it is batched: every
+ * file a transaction wrote is forced at once, in parallel, right before
+ * the journal, and each directory only once. A transaction with a
+ * single update and nothing appended skips the journal altogether,
+ * since one rename is atomic by itself. Setting core.fsync to false
+ * skips the forcing, trading safety against power loss for speed.
+ * @author Ryan Van de Water
+ */
+class Transaction {
+
+    /** Starts a transaction, throwing away the temporary files of any
+     * transaction that never reached its journal.
+     * @return the new transaction
+     */
+    static Transaction begin() {
+        File[] strays = TXN_DIR.listFiles();
+        if (strays != null) {
+            for (File f : strays) {
+                f.delete();
+            }
+        }
+        return new Transaction();
+    }
+
+    /** Notes that a file was written outside of any transaction, such as
+     * a new object, and must be forced to disk, along with the directory
+     * holding it, before the next transaction commits.
+     * @param file - the file
+     */
+    static void wrote(File file) {
+        UNSYNCED.add(file);
+    }
+
+    /** Notes that some files are about to be appended to, recording
+     * their lengths in the journal so that the appends can be undone if
+     * the transaction never commits.
+     * @param files - the files, which need not exist yet
+     */
+    void append(File... files) {
+        for (File f : files) {
+            lengths.putIfAbsent(f, f.length());
+        }
+        writeJournal(false);
+    }
+
+    /** Stages new contents for a file, to replace it when the
+     * transaction commits.
+     * @param target - the file
+     * @param contents - its new contents
+     * @return the temporary file holding CONTENTS until then
+     */
+    File replace(File target, byte[] contents) {
+        TXN_DIR.mkdirs();
+        File temp;
+        try {
+            temp = File.createTempFile("txn", ".tmp", TXN_DIR);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Utils.writeContents(temp, contents);
+        File old = renames.put(target, temp);
+        if (old != null) {
+            old.delete();
+        }
+        deletes.remove(target);
+        return temp;
+    }
+
+    /** Stages the removal of a file, to happen when the transaction
+     * commits.
+     * @param target - the file
+     */
+    void delete(File target) {
+        File old = renames.remove(target);
+        if (old != null) {
+            old.delete();
+        }
+        deletes.add(target);
+    }
+
+    /** Makes everything written so far durable and then carries out the
+     * staged updates. */
+    void commit() {
+        Set<File> dirty = new LinkedHashSet<>();
+        synchronized (UNSYNCED) {
+            dirty.addAll(UNSYNCED);
+            UNSYNCED.clear();
+        }
+        Set<File> dirs = parents(dirty);
+        dirty.addAll(lengths.keySet());
+        dirty.addAll(renames.values());
+        dirty.addAll(dirs);
+        forceAll(dirty);
+        boolean journaled = !lengths.isEmpty()
+            || renames.size() + deletes.size() > 1;
+        if (journaled) {
+            writeJournal(true);
+        }
+        for (Map.Entry<File, File> r : renames.entrySet()) {
+            move(r.getValue(), r.getKey());
+        }
+        for (File f : deletes) {
+            f.delete();
+        }
+        Set<File> changed = new LinkedHashSet<>(renames.keySet());
+        changed.addAll(deletes);
+        forceAll(parents(changed));
+        if (journaled) {
+            clearJournal();
+        }
+    }
+
+    /** Finishes or undoes the transaction a crash interrupted, if any. */
+    static void recover() {
+        if (JOURNAL.length() == 0) {
+            return;
+        }
+        List<String[]> steps = new ArrayList<>();
+        boolean committed = parseJournal(steps);
+        Set<File> changed = new LinkedHashSet<>();
+        for (String[] step : steps) {
+            File target = new File(step[2]);
+            if (committed && step[0].equals("rename")) {
+                File temp = new File(step[1]);
+                if (temp.isFile()) {
+                    move(temp, target);
+                    changed.add(target);
+                }
+            } else if (committed && step[0].equals("delete")) {
+                target.delete();
+                changed.add(target);
+            } else if (!committed && step[0].equals("undo")) {
+                truncate(target, Long.parseLong(step[1]));
+                changed.add(target);
+            }
+        }
+        if (!committed && changed.contains(CommitGraph.GRAPH_FILE)) {
+            CommitGraph.forget();
+            CommitIndex.forget();
+            if (CommitIndex.get().size() > CommitGraph.get().size()) {
+                CommitIndex.rebuild(CommitGraph.get());
+            }
+        }
+        if (!committed && changed.contains(MessageIndex.MESSAGES_FILE)
+                && new MessageIndex().covered()
+                    > MessageIndex.MESSAGES_FILE.length()) {
+            MessageIndex.rebuild();
+        }
+        forceAll(parents(changed));
+        clearJournal();
+    }
+
+    /** Reads the journal, stopping at the first line that is cut off.
+     * @param steps - where to add each step, split into its operation,
+     *              its argument (or "") and its path
+     * @return whether or not the journal ends in a valid commit line
+     */
+    private static boolean parseJournal(List<String[]> steps) {
+        byte[] raw = Utils.readContents(JOURNAL);
+        CRC32 crc = new CRC32();
+        int start = 0;
+        for (int end = 0; end < raw.length; end += 1) {
+            if (raw[end] != '\n') {
+                continue;
+            }
+            String line = new String(raw, start, end - start,
+                    StandardCharsets.UTF_8);
+            if (line.startsWith("commit ")) {
+                return line.substring("commit ".length())
+                    .equals(Long.toString(crc.getValue()));
+            }
+            crc.update(raw, start, end + 1 - start);
+            start = end + 1;
+            if (line.startsWith("delete ")) {
+                steps.add(new String[] {"delete", "",
+                    line.substring("delete ".length())});
+            } else {
+                String[] step = line.split(" ", 3);
+                if (step.length == 3) {
+                    steps.add(step);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Writes out the journal of this transaction and forces it to
+     * disk.
+     * @param committed - whether or not to end it in its commit line,
+     *                  after which it must be replayed
+     */
+    private void writeJournal(boolean committed) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<File, Long> u : lengths.entrySet()) {
+            text.append("undo ").append(u.getValue()).append(' ')
+                .append(u.getKey().getPath()).append('\n');
+        }
+        for (Map.Entry<File, File> r : renames.entrySet()) {
+            text.append("rename ").append(r.getValue().getPath())
+                .append(' ').append(r.getKey().getPath()).append('\n');
+        }
+        for (File f : deletes) {
+            text.append("delete ").append(f.getPath()).append('\n');
+        }
+        byte[] raw = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (committed) {
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            byte[] line = ("commit " + crc.getValue() + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+            byte[] all = new byte[raw.length + line.length];
+            System.arraycopy(raw, 0, all, 0, raw.length);
+            System.arraycopy(line, 0, all, raw.length, line.length);
+            raw = all;
+        }
+        boolean fresh = !JOURNAL.exists();
+        try (FileChannel channel = FileChannel.open(JOURNAL.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(raw);
+            while (buf.hasRemaining()) {
+                channel.write(buf, buf.position());
+            }
+            channel.truncate(raw.length);
+            if (fsync()) {
+                channel.force(false);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (fresh) {
+            force(JOURNAL.getAbsoluteFile().getParentFile());
+        }
+    }
+
+    /** Empties the journal once its transaction is done. This need not
+     * be forced, since replaying a finished journal changes nothing. */
+    private static void clearJournal() {
+        truncate(JOURNAL, 0);
+    }
+
+    /** Cuts a file back to a length, if it is longer.
+     * @param file - the file, which need not exist
+     * @param length - its new length
+     */
+    private static void truncate(File file, long length) {
+        if (file.length() <= length) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Renames a file over another atomically.
+     * @param from - the file to rename
+     * @param to - its new name
+     */
+    private static void move(File from, File to) {
+        try {
+            Files.move(from.toPath(), to.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Finds the directories holding some files.
+     * @param files - the files
+     * @return each of their directories, once
+     */
+    private static Set<File> parents(Set<File> files) {
+        Set<File> result = new LinkedHashSet<>();
+        for (File f : files) {
+            result.add(f.getAbsoluteFile().getParentFile());
+        }
+        return result;
+    }
+
+    /** Forces files and directories to disk in parallel.
+     * @param files - the files and directories; missing ones are
+     *              skipped
+     */
+    private static void forceAll(Set<File> files) {
+        if (fsync()) {
+            files.parallelStream().forEach(Transaction::force);
+        }
+    }
+
+    /** Forces a file or a directory to disk.
+     * @param file - the file or directory, which is skipped if missing
+     */
+    private static void force(File file) {
+        if (!file.exists() || !fsync()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Checks the core.fsync setting.
+     * @return whether or not files are forced to disk
+     */
+    private static boolean fsync() {
+        return Config.getBoolean("core.fsync", true);
+    }
+
+    /** The journal of the repository. */
+    static final File JOURNAL = Utils.join(".gitlet", "journal");
+
+    /** The folder of staged updates. */
+    static final File TXN_DIR = Utils.join(".gitlet", "txn");
+
+    /** The files written outside of any transaction since the last
+     * commit, waiting to be forced to disk. */
+    private static final Set<File> UNSYNCED =
+        Collections.synchronizedSet(new LinkedHashSet<>());
+
+    /** The files appended to, and their lengths before. */
+    private final Map<File, Long> lengths = new LinkedHashMap<>();
+
+    /** The staged replacements, from each file to the temporary file
+     * holding its new contents. */
+    private final Map<File, File> renames = new LinkedHashMap<>();
+
+    /** The staged removals. */
+    private final Set<File> deletes = new LinkedHashSet<>();
+}
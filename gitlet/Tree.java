@@ -0,0 +1,306 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** Represents one directory of the snapshot a commit tracks, mapping
+ * each file in it to the ID of the blob holding its contents and each
+ * subdirectory to the ID of its own tree. A tree's ID covers the names
+ * and IDs of all of its entries, so two directories with the same
+ * contents share one tree, and comparing two tree IDs compares whole
+ * directories at once. A commit points at the tree of the top
+ * directory, and paths of files inside subdirectories are written with
+ * "/" between their parts.
+ * @author Ryan Van de Water
+ */
+public class Tree {
+
+    /** Constructor for a Tree given the files it should track,
+     * building a tree for every subdirectory they are in.
+     * @param track - file paths and the IDs of their blobs
+     */
+    public Tree(Map<String, String> track) {
+        entries = new TreeMap<>();
+        subtrees = new TreeMap<>();
+        children = new HashMap<>();
+        TreeMap<String, Map<String, String>> inner = new TreeMap<>();
+        for (Map.Entry<String, String> e : track.entrySet()) {
+            String path = e.getKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                entries.put(path, e.getValue());
+            } else {
+                inner.computeIfAbsent(path.substring(0, slash),
+                    k -> new HashMap<>()).put(path.substring(slash + 1),
+                            e.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> e : inner.entrySet()) {
+            Tree child = new Tree(e.getValue());
+            subtrees.put(e.getKey(), child.getID());
+            children.put(e.getKey(), child);
+        }
+        treeID = hash();
+    }
+
+    /** An empty tree, for decode to fill in. */
+    private Tree() {
+    }
+
+    /** Loads the tree with the given ID from the object store.
+     * @param id - sha-1 hash code of the tree
+     * @return the stored tree
+     */
+    static Tree read(String id) {
+        return ObjectStore.read(ObjectStore.TREES, id, Tree.class,
+            in -> decode(in, id));
+    }
+
+    /** Writes this tree into the object store, along with the trees of
+     * its subdirectories that were built rather than read. */
+    void save() {
+        if (children != null) {
+            for (Tree child : children.values()) {
+                child.save();
+            }
+        }
+        ObjectStore.write(ObjectStore.TREES, treeID, encode(Encoder.get()));
+    }
+
+    /** Writes this tree in the binary format: the version, then the
+     * number of files followed by the name and blob ID of each, then
+     * the number of subdirectories followed by the name and tree ID of
+     * each, both in name order. The tree's own ID is not written, as it
+     * is the name the tree is stored under.
+     * @param out - where to write it
+     * @return OUT
+     */
+    Encoder encode(Encoder out) {
+        out.writeByte(FORMAT);
+        for (TreeMap<String, String> map : List.of(entries, subtrees)) {
+            out.writeVarint(map.size());
+            for (Map.Entry<String, String> e : map.entrySet()) {
+                out.writeString(e.getKey()).writeID(e.getValue());
+            }
+        }
+        return out;
+    }
+
+    /** Reads a tree written by encode.
+     * @param in - the encoded tree
+     * @param id - the ID it is stored under
+     * @return the tree
+     */
+    static Tree decode(Decoder in, String id) {
+        int format = in.readByte();
+        if (format != FORMAT) {
+            throw Utils.error("Unrecognized tree format %d.", format);
+        }
+        Tree result = new Tree();
+        result.entries = new TreeMap<>();
+        result.subtrees = new TreeMap<>();
+        for (TreeMap<String, String> map
+                 : List.of(result.entries, result.subtrees)) {
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                map.put(in.readString(), in.readID());
+            }
+        }
+        result.treeID = id;
+        return result;
+    }
+
+    /** Getter method for the files directly in this directory.
+     * @return a fresh map of file names to blob IDs that the caller
+     * is free to modify
+     */
+    HashMap<String, String> getEntries() {
+        return new HashMap<>(entries);
+    }
+
+    /** Getter method for the subdirectories of this directory.
+     * @return a fresh map of directory names to tree IDs
+     */
+    HashMap<String, String> getSubtrees() {
+        return new HashMap<>(subtrees);
+    }
+
+    /** Returns the tree of a subdirectory, reading it from the object
+     * store unless it was built along with this tree.
+     * @param name - the name of the subdirectory
+     * @return its tree, or null if there is no such subdirectory
+     */
+    Tree subtree(String name) {
+        String id = subtrees.get(name);
+        if (id == null) {
+            return null;
+        }
+        if (children != null) {
+            return children.get(name);
+        }
+        return read(id);
+    }
+
+    /** Finds the blob of one file, reading only the subtrees of the
+     * directories it is in.
+     * @param path - the path of the file, with "/" between its parts
+     * @return the ID of its blob, or null if the file is not tracked
+     */
+    String lookup(String path) {
+        Tree dir = this;
+        int start = 0;
+        for (int slash = path.indexOf('/'); slash >= 0;
+             slash = path.indexOf('/', start)) {
+            dir = dir.subtree(path.substring(start, slash));
+            if (dir == null) {
+                return null;
+            }
+            start = slash + 1;
+        }
+        return dir.entries.get(path.substring(start));
+    }
+
+    /** Finds the files that differ between two trees, skipping every
+     * pair of subdirectories with the same tree ID without reading
+     * them.
+     * @param from - the old tree, or null for an empty one
+     * @param to - the new tree, or null for an empty one
+     * @return for every path that differs, its old and new blob IDs,
+     * either of which is null if the path is absent, in path order
+     */
+    static TreeMap<String, String[]> diff(Tree from, Tree to) {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        diff(new Tree[] {from, to}, "", (path, ids) -> {
+            if (!Objects.equals(ids[0], ids[1])) {
+                result.put(path, ids);
+            }
+        }, ids -> Objects.equals(ids[0], ids[1]));
+        return result;
+    }
+
+    /** Finds the files a merge has to look at: those that the given
+     * branch changed since the split point, and that the current
+     * branch does not already have in the same form. Subdirectories
+     * where either holds are skipped without being read.
+     * @param split - the tree of the split point
+     * @param curr - the tree of the current branch
+     * @param given - the tree of the given branch
+     * @return for every such path, its blob IDs at the split point, in
+     * the current branch and in the given branch, any of which is null
+     * if the path is absent, in path order
+     */
+    static TreeMap<String, String[]> diff3(Tree split, Tree curr,
+                                           Tree given) {
+        TreeMap<String, String[]> result = new TreeMap<>();
+        Skip settled = ids -> Objects.equals(ids[1], ids[2])
+            || Objects.equals(ids[0], ids[2]);
+        diff(new Tree[] {split, curr, given}, "", (path, ids) -> {
+            if (!settled.test(ids)) {
+                result.put(path, ids);
+            }
+        }, settled);
+        return result;
+    }
+
+    /** Walks several trees side by side.
+     * @param trees - the trees, any of which may be null
+     * @param prefix - the path of the directory being walked
+     * @param visit - called with the blob IDs of every file path
+     * @param skip - tells from the tree IDs of a subdirectory whether
+     *             it can be skipped
+     */
+    private static void diff(Tree[] trees, String prefix, Visit visit,
+                             Skip skip) {
+        TreeSet<String> names = new TreeSet<>();
+        TreeSet<String> dirs = new TreeSet<>();
+        for (Tree t : trees) {
+            if (t != null) {
+                names.addAll(t.entries.keySet());
+                dirs.addAll(t.subtrees.keySet());
+            }
+        }
+        for (String name : names) {
+            String[] ids = new String[trees.length];
+            for (int i = 0; i < trees.length; i += 1) {
+                ids[i] = trees[i] == null ? null : trees[i].entries.get(name);
+            }
+            visit.accept(prefix + name, ids);
+        }
+        for (String name : dirs) {
+            String[] ids = new String[trees.length];
+            for (int i = 0; i < trees.length; i += 1) {
+                ids[i] = trees[i] == null ? null : trees[i].subtrees.get(name);
+            }
+            if (skip.test(ids)) {
+                continue;
+            }
+            Tree[] inner = new Tree[trees.length];
+            for (int i = 0; i < trees.length; i += 1) {
+                inner[i] = ids[i] == null ? null : trees[i].subtree(name);
+            }
+            diff(inner, prefix + name + "/", visit, skip);
+        }
+    }
+
+    /** Getter method for the ID instance variable.
+     * @return sha-1 hash code for the Tree object
+     */
+    String getID() {
+        return treeID;
+    }
+
+    /** Computes the ID of this tree from its entries, in name order,
+     * each as its kind, its name and its ID.
+     * @return the sha-1 hash of the entries
+     */
+    private String hash() {
+        TreeMap<String, String> all = new TreeMap<>();
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            all.put(e.getKey(), "blob " + e.getKey() + "\0" + e.getValue());
+        }
+        for (Map.Entry<String, String> e : subtrees.entrySet()) {
+            all.put(e.getKey(), "tree " + e.getKey() + "\0" + e.getValue());
+        }
+        List<Object> sha1Passed = new ArrayList<>(all.values());
+        return Utils.sha1(sha1Passed);
+    }
+
+    /** Receives the blob IDs of one path during a walk. */
+    private interface Visit {
+        /** Receives one path.
+         * @param path - the path of the file
+         * @param ids - its blob ID in each tree, or null where absent
+         */
+        void accept(String path, String[] ids);
+    }
+
+    /** Decides which entries of a walk can be skipped. */
+    private interface Skip {
+        /** Decides on one entry.
+         * @param ids - its ID in each tree, or null where absent
+         * @return whether or not it can be skipped
+         */
+        boolean test(String[] ids);
+    }
+
+    /** The version of the binary format of trees. */
+    private static final int FORMAT = 1;
+
+    /** File names in this directory and the IDs of their blobs. */
+    private TreeMap<String, String> entries;
+
+    /** Subdirectory names and the IDs of their trees. */
+    private TreeMap<String, String> subtrees;
+
+    /** Denotes the sha-1 hash code specific to this tree. */
+    private String treeID;
+
+    /** The trees of subdirectories, if this tree was built rather than
+     * read. Trees that were read are shared through the ObjectCache, so
+     * they never change, and read their subtrees anew each time. */
+    private HashMap<String, Tree> children;
+}
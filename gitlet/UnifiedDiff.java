@@ -0,0 +1,170 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/** Writes the differences between versions of files as unified diffs,
+ * in the format of git diff. Each hunk is written out as soon as it is
+ * formed, through one buffer, so a diff of many large files never
+ * holds more than one file's lines in memory.
+ * @author Ryan Van de Water
+ */
+class UnifiedDiff {
+
+    /** Starts a diff with the configured number of context lines.
+     * @param out - where to write the diff
+     */
+    UnifiedDiff(OutputStream out) {
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        context = Config.getInt("diff.context", DEFAULT_CONTEXT);
+        if (context < 0) {
+            throw Utils.error("Setting diff.context must not be negative.");
+        }
+    }
+
+    /** Writes the differences between two versions of one file.
+     * @param path - the path of the file
+     * @param old - the old contents, or null if the file was added
+     * @param now - the new contents, or null if the file was removed
+     */
+    void file(String path, byte[] old, byte[] now) {
+        String from = old == null ? "/dev/null" : "a/" + path;
+        String to = now == null ? "/dev/null" : "b/" + path;
+        print("diff --git a/%s b/%s%n", path, path);
+        if (old == null) {
+            print("new file%n");
+        } else if (now == null) {
+            print("deleted file%n");
+        }
+        old = old == null ? new byte[0] : old;
+        now = now == null ? new byte[0] : now;
+        if (Diff.isBinary(old) || Diff.isBinary(now)) {
+            print("Binary files %s and %s differ%n", from, to);
+            return;
+        }
+        List<String> a = Diff.lines(old);
+        List<String> b = Diff.lines(now);
+        int[][] ids = Diff.intern(a, b);
+        List<Diff.Hunk> hunks = Diff.compute(ids[0], ids[1]);
+        if (hunks.isEmpty()) {
+            return;
+        }
+        print("--- %s%n+++ %s%n", from, to);
+        int first = 0;
+        while (first < hunks.size()) {
+            int last = first;
+            while (last + 1 < hunks.size() && hunks.get(last + 1).aStart
+                    - hunks.get(last).aEnd <= 2 * context) {
+                last++;
+            }
+            hunk(a, b, hunks.subList(first, last + 1));
+            first = last + 1;
+        }
+    }
+
+    /** Writes out everything written so far. */
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes one hunk of a unified diff, covering several regions that
+     * are close enough to share their context lines.
+     * @param a - the old lines
+     * @param b - the new lines
+     * @param group - the regions, in order
+     */
+    private void hunk(List<String> a, List<String> b,
+                      List<Diff.Hunk> group) {
+        Diff.Hunk head = group.get(0);
+        Diff.Hunk tail = group.get(group.size() - 1);
+        int aFrom = Math.max(0, head.aStart - context);
+        int aTo = Math.min(a.size(), tail.aEnd + context);
+        int bFrom = head.bStart - (head.aStart - aFrom);
+        int bTo = tail.bEnd + (aTo - tail.aEnd);
+        print("@@ -%s +%s @@%n", range(aFrom, aTo), range(bFrom, bTo));
+        int at = aFrom;
+        for (Diff.Hunk h : group) {
+            lines(' ', a, at, h.aStart);
+            lines('-', a, h.aStart, h.aEnd);
+            lines('+', b, h.bStart, h.bEnd);
+            at = h.aEnd;
+        }
+        lines(' ', a, at, aTo);
+    }
+
+    /** Formats the range of lines a hunk covers in one version, as
+     * unified diffs do: the first line counting from 1 and the number
+     * of lines, which is left out if it is 1, or the line before the
+     * hunk if it covers none.
+     * @param from - the first line covered, counting from 0
+     * @param to - just past the last line covered
+     * @return the range
+     */
+    private static String range(int from, int to) {
+        if (to - from == 1) {
+            return Integer.toString(to);
+        }
+        return (to == from ? from : from + 1) + "," + (to - from);
+    }
+
+    /** Writes lines of a hunk.
+     * @param mark - the character in front of each line
+     * @param lines - the lines of one version
+     * @param from - the first line to write
+     * @param to - just past the last line to write
+     */
+    private void lines(char mark, List<String> lines, int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            String line = lines.get(i);
+            write(mark + line);
+            if (!line.endsWith("\n")) {
+                print("%n\\ No newline at end of file%n");
+            }
+        }
+    }
+
+    /** Writes formatted text.
+     * @param format - the format, as for String.format
+     * @param args - the values to format
+     */
+    private void print(String format, Object... args) {
+        write(String.format(format, args).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Writes a line of a file.
+     * @param line - the line, as from Diff.lines
+     */
+    private void write(String line) {
+        write(line.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /** Writes bytes.
+     * @param bytes - the bytes to write
+     */
+    private void write(byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The number of context lines used when none is configured. */
+    private static final int DEFAULT_CONTEXT = 3;
+
+    /** The size of the output buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Where the diff is written. */
+    private final OutputStream out;
+
+    /** The number of unchanged lines shown around each change. */
+    private final int context;
+}
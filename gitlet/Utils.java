@@ -12,10 +12,10 @@ import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Formatter;
 import java.util.List;
 
 
@@ -30,27 +30,30 @@ class Utils {
     static final int UID_LENGTH = 40;
 
     /** Returns the SHA-1 hash of the concatenation of VALS, which may
-     *  be any mixture of byte arrays and Strings. */
+     *  be any mixture of byte arrays and Strings.  The digest and the
+     *  buffers are reused from one call to the next on each thread,
+     *  and the digest is spelled out in hexadecimal in the same buffer,
+     *  so the only thing allocated is the result. */
     static String sha1(Object... vals) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            for (Object val : vals) {
-                if (val instanceof byte[]) {
-                    md.update((byte[]) val);
-                } else if (val instanceof String) {
-                    md.update(((String) val).getBytes(StandardCharsets.UTF_8));
-                } else {
-                    throw new IllegalArgumentException("improper type to sha1");
-                }
+        MessageDigest md = digest();
+        for (Object val : vals) {
+            if (val instanceof byte[]) {
+                md.update((byte[]) val);
+            } else if (val instanceof String) {
+                update(md, (String) val);
+            } else {
+                throw new IllegalArgumentException("improper type to sha1");
             }
-            Formatter result = new Formatter();
-            for (byte b : md.digest()) {
-                result.format("%02x", b);
-            }
-            return result.toString();
-        } catch (NoSuchAlgorithmException excp) {
-            throw new IllegalArgumentException("System does not support SHA-1");
         }
+        byte[] buf = SCRATCH.get();
+        try {
+            md.digest(buf, 0, UID_LENGTH / 2);
+        } catch (DigestException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        hexBytes(buf, 0, UID_LENGTH / 2, buf, UID_LENGTH / 2);
+        return new String(buf, UID_LENGTH / 2, UID_LENGTH,
+                          StandardCharsets.ISO_8859_1);
     }
 
     /** Returns the SHA-1 hash of the concatenation of the strings in
@@ -59,6 +62,126 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Returns this thread's SHA-1 digest, reset and ready for use.  It
+     *  is shared by everything that hashes on the thread, so it must be
+     *  finished with before anything else is hashed. */
+    static MessageDigest digest() {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        return md;
+    }
+
+    /** Feeds the UTF-8 encoding of S to MD, copying ASCII strings
+     *  through a reused buffer rather than encoding them afresh. */
+    private static void update(MessageDigest md, String s) {
+        int n = s.length();
+        byte[] buf = SCRATCH.get();
+        if (buf.length < n) {
+            buf = new byte[Math.max(n, 2 * buf.length)];
+        }
+        for (int i = 0; i < n; i += 1) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                md.update(s.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buf[i] = (byte) c;
+        }
+        md.update(buf, 0, n);
+        if (buf.length <= MAX_SCRATCH) {
+            SCRATCH.set(buf);
+        }
+    }
+
+    /** The SHA-1 digest of each thread. */
+    private static final ThreadLocal<MessageDigest> DIGEST =
+        ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException excp) {
+                throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+            }
+        });
+
+    /** The buffer each thread encodes strings into before hashing, and
+     *  spells their digests out in. */
+    private static final ThreadLocal<byte[]> SCRATCH =
+        ThreadLocal.withInitial(() -> new byte[1 << 10]);
+
+    /** The largest buffer kept from one hash to the next. */
+    private static final int MAX_SCRATCH = 1 << 20;
+
+    /* HEXADECIMAL NUMERALS. */
+
+    /** Returns the UID_LENGTH / 2 raw bytes of the hexadecimal SHA-1 UID
+     *  HEX. */
+    static byte[] fromHex(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = (byte) ((hexValue(hex.charAt(2 * i)) << 4)
+                                | hexValue(hex.charAt(2 * i + 1)));
+        }
+        return result;
+    }
+
+    /** Returns the lowercase hexadecimal numeral for the LEN bytes of
+     *  BYTES starting at OFFSET. */
+    static String toHex(byte[] bytes, int offset, int len) {
+        byte[] digits = new byte[2 * len];
+        hexBytes(bytes, offset, len, digits, 0);
+        return new String(digits, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Writes the 2 * LEN lowercase hexadecimal digits of the LEN bytes
+     *  of BYTES starting at OFFSET, as ASCII, into DEST starting at
+     *  DESTOFFSET.  The digits may follow the bytes in the same array,
+     *  but must not overlap them. */
+    private static void hexBytes(byte[] bytes, int offset, int len,
+                                 byte[] dest, int destOffset) {
+        for (int i = 0; i < len; i += 1) {
+            int b = bytes[offset + i];
+            dest[destOffset + 2 * i] = HEX_DIGITS[(b >> 4) & 0xf];
+            dest[destOffset + 2 * i + 1] = HEX_DIGITS[b & 0xf];
+        }
+    }
+
+    /** Writes the N low hexadecimal digits of VALUE, as ASCII, into
+     *  DEST starting at OFFSET. */
+    static void hexWord(long value, byte[] dest, int offset, int n) {
+        for (int i = n - 1; i >= 0; i -= 1) {
+            dest[offset + i] = HEX_DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+
+    /** Returns the value of the hexadecimal digit C, in either case, and
+     *  throws IllegalArgumentException if C is not a digit. */
+    static int hexValue(char c) {
+        int value = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException("not a hexadecimal digit: "
+                                               + c);
+        }
+        return value;
+    }
+
+    /** The ASCII codes of the hexadecimal digits, by value. */
+    private static final byte[] HEX_DIGITS =
+        "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** The value of each ASCII character as a hexadecimal digit, or -1
+     *  for those that are not digits. */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 16; i += 1) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+            HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
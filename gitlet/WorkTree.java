@@ -0,0 +1,203 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A scan of the working directory against the index, finding the
+ * files that were modified or deleted since they were staged and the
+ * files that are not tracked at all.
+ *
+ * The scan walks the directory tree on a fork-join pool: every
+ * directory, and every large slice of a directory, is a task of its
+ * own, so a deep tree and a wide one both spread over every core. A
+ * file is only read when its stat data differs from its index entry;
+ * if its contents turn out to be unchanged after all, its entry is
+ * refreshed so that the next scan can skip it.
+ * @author Ryan Van de Water
+ */
+class WorkTree {
+
+    /** Scans the working directory.
+     * @param index - the index to compare the files with
+     * @param threads - the number of threads to scan with
+     */
+    WorkTree(Index index, int threads) {
+        long start = System.nanoTime();
+        this.index = index;
+        modified = new ConcurrentSkipListMap<>();
+        untracked = new ConcurrentSkipListSet<>();
+        seen = ConcurrentHashMap.newKeySet();
+        refreshed = new ConcurrentLinkedQueue<>();
+        scanned = new AtomicInteger();
+        hashed = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            File[] top = Main.CURR.listFiles();
+            pool.invoke(new Walk(top == null ? new File[0] : top, "", 0,
+                    top == null ? 0 : top.length));
+        } finally {
+            pool.shutdown();
+        }
+        for (String path : index.getEntries().keySet()) {
+            if (!seen.contains(path)) {
+                modified.put(path, "deleted");
+            }
+        }
+        for (Map.Entry<String, Index.Entry> e : refreshed) {
+            index.refresh(e.getKey(), e.getValue());
+        }
+        elapsed = System.nanoTime() - start;
+    }
+
+    /** Getter method for the files changed since they were staged.
+     * @return "modified" or "deleted" for each such path, in path order
+     */
+    TreeMap<String, String> getModified() {
+        return new TreeMap<>(modified);
+    }
+
+    /** Getter method for the files that are not tracked.
+     * @return their paths, in order
+     */
+    List<String> getUntracked() {
+        return new ArrayList<>(untracked);
+    }
+
+    /** Checks whether the scan refreshed any stat data in the index, in
+     * which case the index is worth writing back.
+     * @return whether or not any entry was refreshed
+     */
+    boolean refreshedIndex() {
+        return !refreshed.isEmpty();
+    }
+
+    /** Describes how long the scan took.
+     * @param threads - the number of threads it used
+     * @return a one-line summary of the scan
+     */
+    String timing(int threads) {
+        return String.format("Scanned %d files (%d hashed) in %.1f ms"
+                + " on %d threads.", scanned.get(), hashed.get(),
+                elapsed / 1e6, threads);
+    }
+
+    /** Compares one working file with its index entry.
+     * @param path - the path of the file
+     * @param f - the file
+     */
+    private void check(String path, File f) {
+        scanned.incrementAndGet();
+        if (!index.contains(path)) {
+            untracked.add(path);
+            return;
+        }
+        seen.add(path);
+        Index.Entry now = Index.stat(f);
+        if (index.unchanged(path, now)) {
+            return;
+        }
+        hashed.incrementAndGet();
+        if (Blob.hash(f).equals(index.getBlob(path))) {
+            refreshed.add(Map.entry(path, now));
+        } else {
+            modified.put(path, "modified");
+        }
+    }
+
+    /** Scans a slice of the entries of one directory, splitting large
+     * slices in two and starting a new walk for every subdirectory. */
+    private class Walk extends RecursiveAction {
+
+        /** A walk over CHILDREN[LO..HI), whose paths start with PREFIX.
+         * @param children - the entries of a directory
+         * @param prefix - the path of the directory, ending in "/", or
+         *               "" for the working directory itself
+         * @param lo - the first entry to scan
+         * @param hi - just past the last entry to scan
+         */
+        Walk(File[] children, String prefix, int lo, int hi) {
+            this.children = children;
+            this.prefix = prefix;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > SLICE) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Walk(children, prefix, lo, mid),
+                        new Walk(children, prefix, mid, hi));
+                return;
+            }
+            List<Walk> subdirs = new ArrayList<>();
+            for (int i = lo; i < hi; i += 1) {
+                File f = children[i];
+                String path = prefix + f.getName();
+                if (f.isDirectory()) {
+                    if (!path.equals(Main.GITLET_DIR.getName())) {
+                        File[] inner = f.listFiles();
+                        if (inner != null) {
+                            subdirs.add(new Walk(inner, path + "/", 0,
+                                    inner.length));
+                        }
+                    }
+                } else if (f.isFile()) {
+                    check(path, f);
+                }
+            }
+            invokeAll(subdirs);
+        }
+
+        /** The entries of the directory. */
+        private final File[] children;
+
+        /** The path of the directory. */
+        private final String prefix;
+
+        /** The first entry to scan. */
+        private final int lo;
+
+        /** Just past the last entry to scan. */
+        private final int hi;
+    }
+
+    /** The most directory entries one task scans before splitting. */
+    private static final int SLICE = 256;
+
+    /** The index the files are compared with. */
+    private final Index index;
+
+    /** "modified" or "deleted" for every changed path. */
+    private final ConcurrentSkipListMap<String, String> modified;
+
+    /** The paths of the untracked files. */
+    private final ConcurrentSkipListSet<String> untracked;
+
+    /** The tracked paths found in the working directory. */
+    private final Set<String> seen;
+
+    /** The fresh stat data of files that were read but unchanged. */
+    private final ConcurrentLinkedQueue<Map.Entry<String, Index.Entry>>
+        refreshed;
+
+    /** The number of files scanned. */
+    private final AtomicInteger scanned;
+
+    /** The number of files whose contents were read. */
+    private final AtomicInteger hashed;
+
+    /** How long the scan took, in nanoseconds. */
+    private final long elapsed;
+}
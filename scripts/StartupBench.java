@@ -0,0 +1,223 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Times how long each gitlet command takes to print its first output,
+ * or to exit if it prints nothing, counting from when its process is
+ * started. Every command is timed in an empty repository and in a large
+ * generated one, both as plain java -cp gitlet.jar gitlet.Main and
+ * through scripts/gitlet, which uses the AppCDS archive if there is one.
+ * Each time is the median of several runs.
+ *
+ * Usage, from the top of the project after 'make cds':
+ *
+ *     java scripts/StartupBench.java
+ *
+ * The system properties files, commits and runs change the size of the
+ * large repository and the number of runs, as in
+ * java -Dfiles=5000 scripts/StartupBench.java.
+ *
+ * Run with gitlet.jar on the class path and --generate FILES COMMITS,
+ * it instead fills the repository in the current directory, running
+ * every gitlet command in this one process rather than starting one
+ * each time; the benchmark does this to build the large repository
+ * quickly.
+ * @author Ryan Van de Water
+ */
+public class StartupBench {
+
+    /** Runs the benchmark, or generates a repository.
+     * @param args - nothing, or --generate and the sizes
+     */
+    public static void main(String... args) throws Exception {
+        if (args.length == 3 && args[0].equals("--generate")) {
+            generate(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        Path top = Path.of("").toAbsolutePath();
+        Path jar = top.resolve("gitlet.jar");
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Run 'make jar' first.");
+        }
+        int files = Integer.getInteger("files", 2000);
+        int commits = Integer.getInteger("commits", 50);
+        int runs = Integer.getInteger("runs", 5);
+        Path scratch = Files.createTempDirectory("gitlet-startup");
+        try {
+            Path empty = Files.createDirectory(scratch.resolve("empty"));
+            Path large = Files.createDirectory(scratch.resolve("large"));
+            run(empty, List.of("java", "-cp", jar.toString(), "gitlet.Main",
+                    "init"));
+            run(large, List.of("java", "-cp", jar.toString(),
+                    top.resolve("scripts/StartupBench.java").toString(),
+                    "--generate", Integer.toString(files),
+                    Integer.toString(commits)));
+            List<List<String>> launchers = List.of(
+                List.of("java", "-cp", jar.toString(), "gitlet.Main"),
+                List.of(top.resolve("scripts/gitlet").toString()));
+            System.out.printf("Time to first output, median of %d runs,"
+                    + " in ms. Large: %d files, %d commits.%n", runs, files,
+                    commits);
+            System.out.printf("%-24s %9s %9s %9s %9s%n", "command",
+                    "empty", "empty-cds", "large", "large-cds");
+            for (String[] command : COMMANDS) {
+                System.out.printf("%-24s", String.join(" ", command));
+                for (Path repo : List.of(empty, large)) {
+                    for (List<String> launcher : launchers) {
+                        System.out.printf(" %9.1f",
+                                time(repo, launcher, command, runs));
+                    }
+                }
+                System.out.println();
+            }
+        } finally {
+            try (Stream<Path> walk = Files.walk(scratch)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile)
+                    .forEach(File::delete);
+            }
+        }
+    }
+
+    /** Times one command.
+     * @param repo - the repository to run it in
+     * @param launcher - how to start gitlet
+     * @param command - the command and its operands
+     * @param runs - how many times to run it
+     * @return the median time to its first output, in milliseconds
+     */
+    private static double time(Path repo, List<String> launcher,
+                               String[] command, int runs)
+            throws IOException, InterruptedException {
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i += 1) {
+            if (command[0].equals("commit")) {
+                Files.writeString(repo.resolve("touched.txt"), "run " + i
+                        + " " + System.nanoTime() + "\n");
+                List<String> add = new ArrayList<>(launcher);
+                add.addAll(List.of("add", "touched.txt"));
+                run(repo, add);
+            }
+            List<String> cmd = new ArrayList<>(launcher);
+            cmd.addAll(Arrays.asList(command));
+            ProcessBuilder builder = new ProcessBuilder(cmd)
+                .directory(repo.toFile()).redirectErrorStream(true);
+            long start = System.nanoTime();
+            Process p = builder.start();
+            try (InputStream in = p.getInputStream()) {
+                in.read();
+                times[i] = (System.nanoTime() - start) / 1e6;
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            p.waitFor();
+            if (command[0].equals("checkout") && command.length == 2) {
+                List<String> back = new ArrayList<>(launcher);
+                back.addAll(List.of("checkout", "master"));
+                run(repo, back);
+            }
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+
+    /** Runs a process to completion, failing if it fails.
+     * @param dir - the directory to run it in
+     * @param cmd - the command line
+     */
+    private static void run(Path dir, List<String> cmd)
+            throws IOException, InterruptedException {
+        Process p = new ProcessBuilder(cmd).directory(dir.toFile())
+            .redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        if (p.waitFor() != 0) {
+            throw new IllegalStateException(cmd + " failed:\n" + out);
+        }
+    }
+
+    /** Fills the repository in the current directory with FILES files,
+     * 100 to a directory, over COMMITS commits on master, each after the
+     * first rewriting 1% of the files, and a branch named other that
+     * stops at the first commit.
+     * @param files - the number of files
+     * @param commits - the number of commits
+     */
+    private static void generate(int files, int commits) throws Exception {
+        Random random = new Random(files * 31L + commits);
+        gitlet("init");
+        for (int i = 0; i < files; i += 1) {
+            write(i, 0);
+        }
+        Files.writeString(Path.of("touched.txt"), "start\n");
+        gitlet("add", "touched.txt");
+        for (int d = 0; d * 100 < files; d += 1) {
+            gitlet("add", "d" + d);
+        }
+        gitlet("commit", "commit 0");
+        gitlet("branch", "other");
+        for (int c = 1; c < commits; c += 1) {
+            for (int k = 0; k < Math.max(1, files / 100); k += 1) {
+                int i = random.nextInt(files);
+                write(i, c);
+                gitlet("add", name(i));
+            }
+            gitlet("commit", "commit " + c);
+        }
+    }
+
+    /** Writes one generated file.
+     * @param i - the number of the file
+     * @param version - the commit it is written for
+     */
+    private static void write(int i, int version) throws IOException {
+        Path p = Path.of(name(i));
+        Files.createDirectories(p.getParent());
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < 20; line += 1) {
+            text.append("file ").append(i).append(" line ").append(line)
+                .append(" version ").append(version).append('\n');
+        }
+        Files.writeString(p, text);
+    }
+
+    /** Names a generated file.
+     * @param i - the number of the file
+     * @return its path
+     */
+    private static String name(int i) {
+        return "d" + (i / 100) + "/f" + i + ".txt";
+    }
+
+    /** Runs a gitlet command in this process.
+     * @param args - the command and its operands
+     */
+    private static void gitlet(String... args) throws Exception {
+        Class.forName("gitlet.Main").getMethod("main", String[].class)
+            .invoke(null, (Object) args);
+    }
+
+    /** The commands timed. */
+    private static final String[][] COMMANDS = {
+        {"status"},
+        {"log"},
+        {"global-log"},
+        {"find", "commit 0"},
+        {"diff"},
+        {"diff", "--cached"},
+        {"add", "touched.txt"},
+        {"commit", "bench"},
+        {"branch", "bench"},
+        {"rm-branch", "bench"},
+        {"checkout", "other"},
+        {"merge", "other"},
+    };
+}
@@ -0,0 +1,48 @@
+#!/bin/sh
+# Usage: cds-classlist.sh JAR LIST
+# Runs a round of gitlet commands in a scratch repository, with the
+# classes in JAR, and writes to LIST every class they loaded, for
+# 'java -Xshare:dump' to build an AppCDS archive from.
+
+jar=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+list=$(pwd)/$2
+scratch=$(mktemp -d)
+trap 'rm -rf "$scratch"' EXIT
+cd "$scratch" || exit 1
+
+n=0
+run() {
+    n=$((n + 1))
+    java -XX:DumpLoadedClassList="$scratch/$n.classlist" -cp "$jar" \
+         gitlet.Client "$@" > /dev/null
+}
+
+run init
+mkdir dir
+echo one > a.txt
+echo two > dir/b.txt
+run add a.txt dir
+run commit "first"
+run branch other
+run checkout other
+echo three >> a.txt
+run add a.txt
+run commit "second"
+run checkout master
+echo four > c.txt
+run add c.txt
+run rm dir/b.txt
+run status
+run diff --cached
+run commit "third"
+run log
+run global-log
+run find "first"
+run merge other
+first=$(java -cp "$jar" gitlet.Main find first | head -n 1)
+run diff "$first" "$(java -cp "$jar" gitlet.Main find third | head -n 1)"
+run reset "$first"
+run rm-branch other
+run repack
+
+cat "$scratch"/*.classlist | grep -v '^#' | sort -u > "$list"